@@ -17,6 +17,7 @@ public class LocaleManager {
     private final ReportSystem plugin;
     private final Map<String, FileConfiguration> locales;
     private String currentLocale;
+    private volatile int generation; // растёт при каждой загрузке и смене локали (для кэшей отображения)
 
     public LocaleManager(ReportSystem plugin) {
         this.plugin = plugin;
@@ -48,6 +49,7 @@ public class LocaleManager {
             plugin.getLogger().warning("Locale " + currentLocale + " not found, falling back to en-EN");
             currentLocale = "en-EN";
         }
+        generation++;
     }
 
     private void saveDefaultLocale(String fileName) {
@@ -71,6 +73,13 @@ public class LocaleManager {
         loadLocales();
     }
 
+    /**
+     * Номер версии переводов: кэши, собранные из getRaw, пересобираются при его изменении
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
     public String getCurrentLocale() {
         return currentLocale;
     }
@@ -78,6 +87,7 @@ public class LocaleManager {
     public void setLocale(String locale) {
         if (locales.containsKey(locale)) {
             this.currentLocale = locale;
+            generation++;
             plugin.getConfig().set("language", locale);
             plugin.saveConfig();
             plugin.getLogger().info("Language changed to: " + locale);
@@ -68,16 +68,16 @@ public class ReportSystem extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        // Сохранение данных
-        if (dataManager != null) {
-            dataManager.saveAllData();
-        }
-
-        // Остановка Discord бота
+        // Остановка Discord бота - до сохранения данных: ответы Discord ещё изменяют жалобы
         if (discordBot != null) {
             discordBot.shutdown();
         }
 
+        // Сохранение данных
+        if (dataManager != null) {
+            dataManager.shutdown();
+        }
+
         getLogger().info("ReportSystem disabled!");
     }
 
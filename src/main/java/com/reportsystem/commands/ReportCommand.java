@@ -1,7 +1,11 @@
 package com.reportsystem.commands;
 
 import com.reportsystem.ReportSystem;
+import com.reportsystem.data.DataManager;
+import com.reportsystem.data.ReportCache;
+import com.reportsystem.discord.DiscordOutbox;
 import com.reportsystem.models.Report;
+import com.reportsystem.utils.StringPool;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
@@ -27,6 +31,17 @@ public class ReportCommand implements TabExecutor {
     public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command,
                              @NotNull String label, @NotNull String[] args) {
 
+        // Пока жалобы загружаются, команда ставится в очередь и выполнится после загрузки
+        if (!plugin.getDataManager().isReady()) {
+            sender.sendMessage(plugin.getLocaleManager().getMessage("data-loading"));
+            plugin.getDataManager().whenReady(() -> {
+                if (!(sender instanceof Player) || ((Player) sender).isOnline()) {
+                    onCommand(sender, command, label, args);
+                }
+            });
+            return true;
+        }
+
         // Если команда вызвана как /reports - сразу показываем список
         if (label.equalsIgnoreCase("reports")) {
             return handleViewReports(sender);
@@ -43,6 +58,12 @@ public class ReportCommand implements TabExecutor {
                 case "help":
                     return handleHelp(sender);
 
+                case "stats":
+                    return handleStats(sender, args);
+
+                case "search":
+                    return handleSearch(sender, args);
+
                 case "confirm":
                     if (sender instanceof Player && args.length > 1) {
                         boolean confirmed = args[1].equalsIgnoreCase("yes");
@@ -129,6 +150,99 @@ public class ReportCommand implements TabExecutor {
         return true;
     }
 
+    private boolean handleStats(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("reportsystem.admin.stats")) {
+            sender.sendMessage(plugin.getLocaleManager().getMessage("no-permission"));
+            return true;
+        }
+
+        // /report stats discord - отправить сводку в канал Discord
+        if (args.length > 1 && args[1].equalsIgnoreCase("discord")) {
+            if (plugin.getDiscordBot() == null || !plugin.getDiscordBot().isConnected()) {
+                sender.sendMessage(plugin.getLocaleManager().getMessage("report-system-unavailable"));
+                return true;
+            }
+            plugin.getDiscordBot().sendStatistics();
+            sender.sendMessage(plugin.getLocaleManager().getMessage("admin-stats-discord-sent"));
+            return true;
+        }
+
+        // Счётчики поддерживаются при записи - без обхода всех жалоб
+        DataManager dataManager = plugin.getDataManager();
+        int pending = dataManager.getStatusCount(Report.ReportStatus.PENDING);
+        int approved = dataManager.getStatusCount(Report.ReportStatus.APPROVED);
+        int rejected = dataManager.getStatusCount(Report.ReportStatus.REJECTED);
+
+        sender.sendMessage(plugin.getLocaleManager().getMessageRaw("admin-stats",
+                "total", String.valueOf(pending + approved + rejected),
+                "approved", String.valueOf(approved),
+                "rejected", String.valueOf(rejected),
+                "pending", String.valueOf(pending)));
+
+        sender.sendMessage(plugin.getLocaleManager().getMessageRaw("admin-stats-last-day",
+                "created", String.valueOf(dataManager.getActivityLastHours(Report.ReportStatus.PENDING, 24)),
+                "approved", String.valueOf(dataManager.getActivityLastHours(Report.ReportStatus.APPROVED, 24)),
+                "rejected", String.valueOf(dataManager.getActivityLastHours(Report.ReportStatus.REJECTED, 24))));
+
+        sender.sendMessage(plugin.getLocaleManager().getMessageRaw("admin-stats-last-week",
+                "created", String.valueOf(dataManager.getActivityLastDays(Report.ReportStatus.PENDING, 7)),
+                "approved", String.valueOf(dataManager.getActivityLastDays(Report.ReportStatus.APPROVED, 7)),
+                "rejected", String.valueOf(dataManager.getActivityLastDays(Report.ReportStatus.REJECTED, 7))));
+
+        sender.sendMessage(plugin.getLocaleManager().getMessageRaw("admin-stats-storage",
+                "pending", String.valueOf(dataManager.getPendingWrites()),
+                "names", String.valueOf(StringPool.size())));
+
+        ReportCache cache = dataManager.getCache();
+        if (cache != null) {
+            sender.sendMessage(plugin.getLocaleManager().getMessageRaw("admin-stats-cache",
+                    "size", String.valueOf(cache.size()),
+                    "hits", String.valueOf(Math.round(cache.getHitRate() * 100))));
+        }
+
+        if (plugin.getDiscordBot() != null) {
+            DiscordOutbox outbox = plugin.getDiscordBot().getOutbox();
+            sender.sendMessage(plugin.getLocaleManager().getMessageRaw("admin-stats-discord-queue",
+                    "depth", String.valueOf(outbox.getQueueDepth()),
+                    "average", String.valueOf(outbox.getAverageLatencyMs()),
+                    "max", String.valueOf(outbox.getMaxLatencyMs()),
+                    "coalesced", String.valueOf(outbox.getCoalescedCount())));
+        }
+        return true;
+    }
+
+    private boolean handleSearch(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("reportsystem.admin.search")) {
+            sender.sendMessage(plugin.getLocaleManager().getMessage("no-permission"));
+            return true;
+        }
+
+        if (args.length < 2) {
+            sender.sendMessage(plugin.getLocaleManager().getMessage("admin-search-usage"));
+            return true;
+        }
+
+        String query = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+        int limit = plugin.getConfig().getInt("reports.search-results", 10);
+        plugin.getDataManager().searchReports(query, limit, results -> {
+            if (results.isEmpty()) {
+                sender.sendMessage(plugin.getLocaleManager().getMessage("admin-search-empty", "query", query));
+                return;
+            }
+
+            sender.sendMessage(plugin.getLocaleManager().getMessage("admin-search-header",
+                    "query", query, "count", String.valueOf(results.size())));
+            for (Report report : results) {
+                sender.sendMessage(plugin.getLocaleManager().getMessageRaw("admin-search-entry",
+                        "id", report.getId(),
+                        "violator", report.getViolatorName(),
+                        "reason", report.getReason(),
+                        "status", plugin.getLocaleManager().getRaw("status-" + report.getStatus().getKey())));
+            }
+        });
+        return true;
+    }
+
     private boolean handleHelp(CommandSender sender) {
         sender.sendMessage("§6§l=== ReportSystem Help ===");
         sender.sendMessage("");
@@ -148,6 +262,12 @@ public class ReportCommand implements TabExecutor {
             if (sender.hasPermission("reportsystem.admin.reload")) {
                 sender.sendMessage("§e/report reload §7- Reload configuration");
             }
+            if (sender.hasPermission("reportsystem.admin.stats")) {
+                sender.sendMessage("§e/report stats [discord] §7- Show report statistics");
+            }
+            if (sender.hasPermission("reportsystem.admin.search")) {
+                sender.sendMessage("§e/report search <text> §7- Search reports by reason and comments");
+            }
         }
 
         sender.sendMessage("");
@@ -169,6 +289,12 @@ public class ReportCommand implements TabExecutor {
             if (sender.hasPermission("reportsystem.admin.reload")) {
                 subCommands.add("reload");
             }
+            if (sender.hasPermission("reportsystem.admin.stats")) {
+                subCommands.add("stats");
+            }
+            if (sender.hasPermission("reportsystem.admin.search")) {
+                subCommands.add("search");
+            }
 
             // Всегда показываем help
             subCommands.add("help");
@@ -179,6 +305,11 @@ public class ReportCommand implements TabExecutor {
                     .filter(s -> s.toLowerCase().startsWith(input))
                     .sorted()
                     .collect(Collectors.toList());
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("stats")
+                && sender.hasPermission("reportsystem.admin.stats")) {
+            if ("discord".startsWith(args[1].toLowerCase())) {
+                completions.add("discord");
+            }
         }
 
         return completions;
@@ -0,0 +1,238 @@
+package com.reportsystem.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Отдельный поток для записи жалоб на диск.
+ * Изменённые жалобы помечаются как "грязные", а запись выполняется одним пакетом
+ * через flushDelayMs после первого изменения - серия кликов превращается в один flush.
+ */
+public class AsyncReportWriter {
+
+    private final Logger logger;
+    private final long flushDelayMs;
+    private final Consumer<List<Long>> sink;
+    private final ScheduledExecutorService executor;
+    private final Set<Long> dirty; // ключи изменённых жалоб
+    private final Set<Long> flushing; // ключи жалоб из записываемого сейчас пакета
+    private final AtomicBoolean flushScheduled;
+    private volatile Consumer<List<Long>> flushListener;
+    private final Map<Long, List<Runnable>> writeWaiters = new HashMap<>(); // задачи, ждущие записи жалобы
+
+    /**
+     * @param sink вызывается в потоке записи со списком ключей изменённых жалоб
+     */
+    public AsyncReportWriter(Logger logger, long flushDelayMs, Consumer<List<Long>> sink) {
+        this.logger = logger;
+        this.flushDelayMs = Math.max(0, flushDelayMs);
+        this.sink = sink;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ReportSystem-Persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dirty = ConcurrentHashMap.newKeySet();
+        this.flushing = ConcurrentHashMap.newKeySet();
+        this.flushScheduled = new AtomicBoolean(false);
+    }
+
+    /**
+     * Помечает жалобу для записи. Никогда не блокирует вызывающий поток.
+     * Если поток записи уже остановлен, изменение запишет flushIfStopped.
+     */
+    public void markDirty(long reportKey) {
+        dirty.add(reportKey);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::runFlush, flushDelayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Вызывается под блокировкой жалобы, поэтому записывать здесь нельзя
+                flushScheduled.set(false);
+                logger.warning("Поток записи данных уже остановлен, жалоба " + reportKey + " будет записана синхронно");
+            }
+        }
+    }
+
+    /**
+     * Записывает изменения в вызывающем потоке, если поток записи уже остановлен (изменение пришло
+     * во время выключения). Вызывается после markDirty вне блокировки жалобы.
+     */
+    public void flushIfStopped() {
+        if (!executor.isShutdown() || dirty.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Задачи, принятые до остановки, должны завершиться - запись не выполняется в два потока
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (this) {
+            runFlush();
+        }
+    }
+
+    /**
+     * Выполняет задачу, когда последнее изменение жалобы записано на диск: сразу, если записывать нечего,
+     * иначе в потоке записи после пакета с этой жалобой
+     */
+    public void whenWritten(long reportKey, Runnable task) {
+        synchronized (writeWaiters) {
+            if (isPending(reportKey)) {
+                writeWaiters.computeIfAbsent(reportKey, k -> new ArrayList<>(1)).add(task);
+                return;
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * Слушатель, вызываемый в потоке записи после каждого пакета, когда его ключи уже не считаются записываемыми
+     */
+    public void setFlushListener(Consumer<List<Long>> listener) {
+        this.flushListener = listener;
+    }
+
+    /**
+     * Выполняет задачу в потоке записи (после уже запланированных)
+     */
+    public void execute(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.severe("Ошибка в потоке записи данных: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Периодически выполняет задачу в потоке записи
+     */
+    public void scheduleWithFixedDelay(Runnable task, long initialDelayMs, long delayMs) {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.severe("Ошибка в потоке записи данных: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, initialDelayMs, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Записывает оставшиеся изменения, выполняет финальную задачу и останавливает поток.
+     */
+    public void shutdown(Runnable finalTask) {
+        awaitTask(this::runFlush);
+        awaitTask(finalTask);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Поток записи данных не завершился вовремя");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Число жалоб, изменения которых ещё не записаны на диск
+     */
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Есть ли у жалобы изменения, ещё не записанные на диск (ожидающие или записываемые сейчас)
+     */
+    public boolean isPending(long reportKey) {
+        // Порядок важен: runFlush сначала добавляет ключ в flushing, затем убирает из dirty
+        return dirty.contains(reportKey) || flushing.contains(reportKey);
+    }
+
+    private void awaitTask(Runnable task) {
+        try {
+            executor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.severe("Ошибка записи данных: " + e.getCause().getMessage());
+        } catch (RejectedExecutionException e) {
+            logger.warning("Поток записи данных уже остановлен");
+        }
+    }
+
+    private void runFlush() {
+        // Сбрасываем флаг до выборки, чтобы новые изменения запланировали следующий flush
+        flushScheduled.set(false);
+
+        List<Long> batch = new ArrayList<>(dirty.size());
+        Iterator<Long> iterator = dirty.iterator();
+        while (iterator.hasNext()) {
+            Long key = iterator.next();
+            batch.add(key);
+            flushing.add(key);
+            iterator.remove();
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            sink.accept(batch);
+        } catch (Exception e) {
+            logger.severe("Ошибка записи данных: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            flushing.clear();
+        }
+
+        Consumer<List<Long>> listener = flushListener;
+        if (listener != null) {
+            listener.accept(batch);
+        }
+
+        runWriteWaiters(batch);
+    }
+
+    private void runWriteWaiters(List<Long> batch) {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (writeWaiters) {
+            if (writeWaiters.isEmpty()) {
+                return;
+            }
+            for (Long key : batch) {
+                // Неудачная запись снова помечает жалобу - задачи ждут следующего пакета
+                if (!isPending(key)) {
+                    List<Runnable> tasks = writeWaiters.remove(key);
+                    if (tasks != null) {
+                        ready.addAll(tasks);
+                    }
+                }
+            }
+        }
+
+        for (Runnable task : ready) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.severe("Ошибка в потоке записи данных: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
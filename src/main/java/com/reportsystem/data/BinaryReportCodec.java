@@ -0,0 +1,238 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Компактный бинарный формат снапшота жалоб (reports.dat).
+ *
+ * Заголовок: магическое число "RSBN", версия схемы.
+ * Далее словарь имён игроков и проверяющих, затем записи: UUID хранятся как два long,
+ * даты - как epoch millis, статус - одним байтом, имена - индексом в словаре.
+ * Строки и числа переменной длины пишутся с varint-префиксом.
+ * Отсутствующие (null) имена, причина и комментарий отмечаются отдельным байтом и не пишутся.
+ */
+public final class BinaryReportCodec {
+
+    private static final int MAGIC = 0x5253424E; // "RSBN"
+    // 2 - добавлен ID сообщения в Discord, 3 - отметки null; файлы версий 1 и 2 читаются
+    private static final int VERSION = 3;
+
+    private static final int FLAG_VIOLATOR_UUID = 1;
+    private static final int FLAG_ADMIN_COMMENT = 1 << 1;
+    private static final int FLAG_REVIEWED_BY = 1 << 2;
+    private static final int FLAG_REVIEWED_BY_ID = 1 << 3;
+    private static final int FLAG_REVIEWED_AT = 1 << 4;
+    private static final int FLAG_DISCORD_MESSAGE = 1 << 5;
+    private static final int FLAG_NULLS = 1 << 6; // за флагами следует байт отметок NULL_*
+
+    private static final int NULL_REPORTER_NAME = 1;
+    private static final int NULL_VIOLATOR_NAME = 1 << 1;
+    private static final int NULL_REASON = 1 << 2;
+    private static final int NULL_COMMENT = 1 << 3;
+
+    // Порядок статусов в файле фиксирован и не зависит от порядка в enum
+    private static final Report.ReportStatus[] STATUS_CODES = {
+            Report.ReportStatus.PENDING,
+            Report.ReportStatus.APPROVED,
+            Report.ReportStatus.REJECTED
+    };
+
+    private BinaryReportCodec() {
+    }
+
+    public static void write(Collection<Report> source, OutputStream output) throws IOException {
+        List<Report> reports = new ArrayList<>(source);
+        DataOutputStream out = new DataOutputStream(output);
+
+        // Словарь имён
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Report report : reports) {
+            intern(dictionary, report.getReporterName());
+            intern(dictionary, report.getViolatorName());
+            intern(dictionary, report.getReviewedBy());
+        }
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        writeVarInt(out, dictionary.size());
+        for (String name : dictionary.keySet()) {
+            writeString(out, name);
+        }
+
+        writeVarInt(out, reports.size());
+        for (Report report : reports) {
+            int flags = 0;
+            if (report.getViolatorUUID() != null) flags |= FLAG_VIOLATOR_UUID;
+            if (report.getAdminComment() != null) flags |= FLAG_ADMIN_COMMENT;
+            if (report.getReviewedBy() != null) flags |= FLAG_REVIEWED_BY;
+            if (report.getReviewedById() != null) flags |= FLAG_REVIEWED_BY_ID;
+            if (report.getReviewedAt() != null) flags |= FLAG_REVIEWED_AT;
+            if (report.getDiscordMessageId() != 0) flags |= FLAG_DISCORD_MESSAGE;
+
+            int nulls = 0;
+            if (report.getReporterName() == null) nulls |= NULL_REPORTER_NAME;
+            if (report.getViolatorName() == null) nulls |= NULL_VIOLATOR_NAME;
+            if (report.getReason() == null) nulls |= NULL_REASON;
+            if (report.getComment() == null) nulls |= NULL_COMMENT;
+            if (nulls != 0) flags |= FLAG_NULLS;
+
+            writeString(out, report.getId());
+            out.writeByte(flags);
+            if (nulls != 0) {
+                out.writeByte(nulls);
+            }
+            out.writeByte(statusCode(report.getStatus()));
+            writeUUID(out, report.getReporterUUID());
+            if ((nulls & NULL_REPORTER_NAME) == 0) {
+                writeVarInt(out, dictionary.get(report.getReporterName()));
+            }
+            if ((nulls & NULL_VIOLATOR_NAME) == 0) {
+                writeVarInt(out, dictionary.get(report.getViolatorName()));
+            }
+            if ((nulls & NULL_REASON) == 0) {
+                writeString(out, report.getReason());
+            }
+            if ((nulls & NULL_COMMENT) == 0) {
+                writeString(out, report.getComment());
+            }
+            out.writeLong(report.getCreatedAtMillis());
+
+            if ((flags & FLAG_VIOLATOR_UUID) != 0) {
+                writeUUID(out, report.getViolatorUUID());
+            }
+            if ((flags & FLAG_ADMIN_COMMENT) != 0) {
+                writeString(out, report.getAdminComment());
+            }
+            if ((flags & FLAG_REVIEWED_BY) != 0) {
+                writeVarInt(out, dictionary.get(report.getReviewedBy()));
+            }
+            if ((flags & FLAG_REVIEWED_BY_ID) != 0) {
+                writeString(out, report.getReviewedById());
+            }
+            if ((flags & FLAG_REVIEWED_AT) != 0) {
+                out.writeLong(report.getReviewedAt().getTime());
+            }
+            if ((flags & FLAG_DISCORD_MESSAGE) != 0) {
+                out.writeLong(report.getDiscordMessageId());
+            }
+        }
+
+        out.flush();
+    }
+
+    public static Map<String, Report> read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a ReportSystem binary snapshot");
+        }
+        int version = in.readUnsignedShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported binary snapshot version: " + version);
+        }
+
+        String[] dictionary = new String[readVarInt(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(in);
+        }
+
+        int count = readVarInt(in);
+        Map<String, Report> reports = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+        for (int i = 0; i < count; i++) {
+            String id = readString(in);
+            int flags = in.readUnsignedByte();
+            // Файлы версий 1 и 2 не содержат FLAG_NULLS
+            int nulls = (flags & FLAG_NULLS) != 0 ? in.readUnsignedByte() : 0;
+            Report.ReportStatus status = statusFromCode(in.readUnsignedByte());
+            UUID reporterUUID = readUUID(in);
+            String reporterName = (nulls & NULL_REPORTER_NAME) == 0 ? dictionary[readVarInt(in)] : null;
+            String violatorName = (nulls & NULL_VIOLATOR_NAME) == 0 ? dictionary[readVarInt(in)] : null;
+            String reason = (nulls & NULL_REASON) == 0 ? readString(in) : null;
+            String comment = (nulls & NULL_COMMENT) == 0 ? readString(in) : null;
+            long createdAt = in.readLong();
+            UUID violatorUUID = (flags & FLAG_VIOLATOR_UUID) != 0 ? readUUID(in) : null;
+
+            String adminComment = (flags & FLAG_ADMIN_COMMENT) != 0 ? readString(in) : null;
+            String reviewedBy = (flags & FLAG_REVIEWED_BY) != 0 ? dictionary[readVarInt(in)] : null;
+            String reviewedById = (flags & FLAG_REVIEWED_BY_ID) != 0 ? readString(in) : null;
+            Date reviewedAt = (flags & FLAG_REVIEWED_AT) != 0 ? new Date(in.readLong()) : null;
+            long discordMessageId = (flags & FLAG_DISCORD_MESSAGE) != 0 ? in.readLong() : 0L;
+
+            Report report = new Report(id, reporterUUID, reporterName, violatorName, violatorUUID,
+                    reason, comment, createdAt)
+                    .restore(0, status, adminComment, reviewedBy, reviewedById, reviewedAt, discordMessageId);
+
+            reports.put(id, report);
+        }
+
+        return reports;
+    }
+
+    private static void intern(Map<String, Integer> dictionary, String value) {
+        if (value != null) {
+            dictionary.putIfAbsent(value, dictionary.size());
+        }
+    }
+
+    private static int statusCode(Report.ReportStatus status) {
+        for (int i = 0; i < STATUS_CODES.length; i++) {
+            if (STATUS_CODES[i] == status) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static Report.ReportStatus statusFromCode(int code) throws IOException {
+        if (code >= STATUS_CODES.length) {
+            throw new IOException("Unknown report status code: " + code);
+        }
+        return STATUS_CODES[code];
+    }
+
+    private static void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUUID(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
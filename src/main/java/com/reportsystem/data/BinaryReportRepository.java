@@ -0,0 +1,35 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Хранилище в компактном бинарном reports.dat (см. BinaryReportCodec)
+ */
+public class BinaryReportRepository extends FileReportRepository {
+
+    public BinaryReportRepository(SnapshotFile snapshot, ReportJournal journal, int compactThreshold, Logger logger) {
+        super(snapshot, journal, compactThreshold, logger);
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    protected Map<String, Report> readContent(InputStream input) throws IOException {
+        return BinaryReportCodec.read(input);
+    }
+
+    @Override
+    protected void writeContent(Collection<Report> reports, OutputStream output) throws IOException {
+        BinaryReportCodec.write(reports, output);
+    }
+}
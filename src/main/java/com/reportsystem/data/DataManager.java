@@ -2,148 +2,998 @@ package com.reportsystem.data;
 
 import com.reportsystem.ReportSystem;
 import com.reportsystem.models.Report;
+import com.reportsystem.utils.ReportIds;
+import com.reportsystem.utils.TextArena;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 
-import java.io.*;
-import java.lang.reflect.Type;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 public class DataManager {
 
+    private static final long HOUR_MILLIS = 60L * 60 * 1000;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    private static final int LOAD_BATCH = 10_000; // жалоб на пачку при потоковой загрузке индексов
+    private static final int MAX_UPDATE_ATTEMPTS = 16;
+    private static final int PUBLISH_STRIPES = 64;
+
     private final ReportSystem plugin;
-    private final Gson gson;
-    private final File dataFile;
-    private final Map<String, Report> reports;
-    private final Map<UUID, List<String>> playerReports; // UUID -> List of Report IDs
+    private final ReportRepository repository;
+    private final Map<Long, Report> reports; // ключ жалобы (ReportIds.toKey) -> жалоба; при lazy-load - только не записанные
+    private final ReportCache bodies; // null, если все жалобы держатся в памяти
+    private final PlayerReportIndex playerReports; // жалобы каждого игрока, упорядоченные по дате
+    private final ReportIndex index;
+    private final ReportSearchIndex searchIndex;
+    private final StatusRollup hourlyActivity; // последние 48 часов
+    private final StatusRollup dailyActivity; // последние 30 дней
+    private final AsyncReportWriter writer;
+    private final ReportIdAllocator idAllocator;
+    private final ReportArchive archive; // null, если архив отключён
+    private final Queue<Runnable> pendingTasks; // задачи, ожидающие окончания загрузки
+    private final Object[] publishLocks; // порядок публикации версий одной жалобы в индексы
+    private final AtomicLongArray releases; // счётчики выгрузки жалоб из reports по полосам publishLocks
+    private volatile boolean ready;
 
     public DataManager(ReportSystem plugin) {
         this.plugin = plugin;
-        this.gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .registerTypeAdapter(Report.class, new ReportAdapter())
-                .create();
-        this.dataFile = new File(plugin.getDataFolder(), "reports.json");
         this.reports = new ConcurrentHashMap<>();
-        this.playerReports = new ConcurrentHashMap<>();
+        this.playerReports = new PlayerReportIndex();
+        this.index = new ReportIndex();
+        this.searchIndex = new ReportSearchIndex();
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+        this.publishLocks = new Object[PUBLISH_STRIPES];
+        for (int i = 0; i < PUBLISH_STRIPES; i++) {
+            publishLocks[i] = new Object();
+        }
+        this.releases = new AtomicLongArray(PUBLISH_STRIPES);
+        this.hourlyActivity = new StatusRollup(HOUR_MILLIS, 48);
+        this.dailyActivity = new StatusRollup(DAY_MILLIS, 30);
+        // Должно быть включено до загрузки: тексты переносятся вне кучи при создании жалоб
+        TextArena.setEnabled(plugin.getConfig().getBoolean("storage.off-heap-text", false));
+        this.repository = createRepository(plugin.getConfig().getString("storage.type", "json"));
+        this.writer = new AsyncReportWriter(plugin.getLogger(),
+                plugin.getConfig().getLong("storage.flush-delay-ms", 1000), this::persist);
+        this.idAllocator = new ReportIdAllocator(new File(plugin.getDataFolder(), "report-ids.dat"),
+                plugin.getConfig().getInt("storage.node-id", 0), plugin.getLogger(), writer::execute);
+        this.bodies = createCache();
+        if (bodies != null) {
+            writer.setFlushListener(this::releaseWritten);
+        }
+
+        if (plugin.getConfig().getBoolean("storage.archive.enabled", false)) {
+            this.archive = new ReportArchive(new File(plugin.getDataFolder(), "archive"), plugin.getLogger());
+        } else {
+            this.archive = null;
+        }
 
-        loadData();
+        // Загрузка и построение индексов выполняются в потоке записи, не задерживая запуск сервера
+        writer.execute(this::loadData);
+        scheduleArchiving();
     }
 
-    public void loadData() {
-        if (!dataFile.exists()) {
-            plugin.getLogger().info("Файл данных не найден, создаём новый...");
+    /**
+     * В режиме storage.lazy-load в памяти остаются только индексы, а тела жалоб
+     * загружаются из базы по требованию в LRU-кэш
+     */
+    private ReportCache createCache() {
+        if (!plugin.getConfig().getBoolean("storage.lazy-load.enabled", false)) {
+            return null;
+        }
+        if (!(repository instanceof LookupRepository)) {
+            plugin.getLogger().warning("storage.lazy-load работает только с хранилищем sql, "
+                    + "все жалобы будут загружены в память");
+            return null;
+        }
+        return new ReportCache(plugin.getConfig().getInt("storage.lazy-load.cache-size", 5000));
+    }
+
+    /**
+     * Периодический перенос старых рассмотренных жалоб в архив
+     */
+    private void scheduleArchiving() {
+        if (archive == null) {
             return;
         }
 
-        try (Reader reader = new FileReader(dataFile)) {
-            Type type = new TypeToken<Map<String, Report>>(){}.getType();
-            Map<String, Report> loaded = gson.fromJson(reader, type);
+        long intervalMs = Math.max(1, plugin.getConfig().getLong("storage.archive.interval-minutes", 60)) * 60_000L;
+        writer.scheduleWithFixedDelay(this::archiveResolved, 60_000L, intervalMs);
+    }
 
-            if (loaded != null) {
-                reports.putAll(loaded);
+    /**
+     * Переносит в архив рассмотренные жалобы старше storage.archive.after-days
+     * (вызывается только в потоке записи)
+     */
+    private void archiveResolved() {
+        long afterDays = plugin.getConfig().getLong("storage.archive.after-days", 30);
+        long threshold = System.currentTimeMillis() - afterDays * 24L * 60 * 60 * 1000;
 
-                // Индексируем жалобы по игрокам
-                for (Report report : loaded.values()) {
-                    playerReports.computeIfAbsent(report.getReporterUUID(), k -> new ArrayList<>())
-                            .add(report.getId());
+        List<Report> candidates = new ArrayList<>();
+        if (bodies != null) {
+            // Тела жалоб не в памяти - выбираем в базе; незаписанные изменения дождутся следующего прохода
+            try {
+                for (Report report : ((LookupRepository) repository).findResolvedBefore(threshold)) {
+                    if (!reports.containsKey(report.getKey())) {
+                        candidates.add(report);
+                    }
+                }
+            } catch (IOException e) {
+                plugin.getLogger().severe("Ошибка выборки жалоб для архива: " + e.getMessage());
+                return;
+            }
+        } else {
+            for (Report report : reports.values()) {
+                if (report.getStatus() == Report.ReportStatus.PENDING) {
+                    continue;
+                }
+                Date resolvedAt = report.getReviewedAt() != null ? report.getReviewedAt() : report.getCreatedAt();
+                if (resolvedAt.getTime() < threshold) {
+                    candidates.add(report);
                 }
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        try {
+            archive.archive(candidates);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Ошибка записи архива: " + e.getMessage());
+            return;
+        }
 
-                plugin.getLogger().info("Загружено жалоб: " + reports.size());
+        // Выполняется в потоке записи, поэтому между выборкой и удалением не бывает записи и выгрузки жалоб:
+        // изменённая после выборки жалоба всё ещё лежит в reports. Снятие с учёта атомарно относительно
+        // updateReport - после него обновление найдёт жалобу уже в архиве и вернёт её в оперативный набор.
+        Set<String> archivedIds = new HashSet<>();
+        for (Report report : candidates) {
+            long reportKey = report.getKey();
+            int stripe = stripe(reportKey);
+            synchronized (publishLocks[stripe]) {
+                boolean unchanged = bodies != null
+                        ? !reports.containsKey(reportKey)
+                        : reports.remove(reportKey, report);
+                if (!unchanged) {
+                    // Изменена после выборки - остаётся в оперативном наборе, архивная копия не учитывается
+                    archive.remove(report.getId());
+                    continue;
+                }
+                releases.incrementAndGet(stripe);
+                if (bodies != null) {
+                    bodies.remove(reportKey);
+                }
+                playerReports.remove(report);
+                index.remove(report);
+                searchIndex.remove(report);
+            }
+            archivedIds.add(report.getId());
+        }
+
+        try {
+            repository.delete(archivedIds, new ArrayList<>(reports.values()));
+        } catch (IOException e) {
+            plugin.getLogger().severe("Ошибка удаления архивных жалоб из хранилища: " + e.getMessage());
+        }
+
+        plugin.getLogger().info("Перенесено в архив жалоб: " + archivedIds.size());
+        // Тексты архивных жалоб больше не нужны - освобождаем их сегменты вне кучи
+        TextArena.reclaim();
+    }
+
+    /**
+     * Создаёт хранилище по типу из config.yml: json, binary или sql
+     */
+    private ReportRepository createRepository(String type) {
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "sql":
+                return new SqlReportRepository(new File(plugin.getDataFolder(), "reports"),
+                        plugin.getConfig().getInt("storage.sql.batch-size", 500), plugin.getLogger());
+            case "binary":
+                return createFileRepository("binary");
+            case "json":
+                return createFileRepository("json");
+            default:
+                plugin.getLogger().warning("Неизвестный тип хранилища " + type + ", используется json");
+                return createFileRepository("json");
+        }
+    }
+
+    private FileReportRepository createFileRepository(String type) {
+        int generations = plugin.getConfig().getInt("storage.snapshot-generations", 3);
+        int compactThreshold = plugin.getConfig().getInt("storage.journal.compact-threshold", 1000);
+
+        ReportJournal journal = null;
+        if (plugin.getConfig().getBoolean("storage.journal.enabled", true)) {
+            Gson journalGson = new GsonBuilder()
+                    .registerTypeAdapter(Report.class, new ReportAdapter())
+                    .create();
+            journal = new ReportJournal(new File(plugin.getDataFolder(), "reports.journal"),
+                    journalGson, plugin.getLogger());
+        }
+
+        if (type.equals("binary")) {
+            SnapshotFile snapshot = new SnapshotFile(new File(plugin.getDataFolder(), "reports.dat"),
+                    generations, plugin.getLogger());
+            return new BinaryReportRepository(snapshot, journal, compactThreshold, plugin.getLogger());
+        }
+
+        Gson gson = new GsonBuilder()
+                .setPrettyPrinting()
+                .registerTypeAdapter(Report.class, new ReportAdapter())
+                .create();
+        SnapshotFile snapshot = new SnapshotFile(new File(plugin.getDataFolder(), "reports.json"),
+                generations, plugin.getLogger());
+        return new JsonReportRepository(snapshot, journal, compactThreshold, gson, plugin.getLogger());
+    }
+
+    /**
+     * Загружает жалобы и строит индексы (вызывается только в потоке записи)
+     */
+    private void loadData() {
+        long startedAt = System.currentTimeMillis();
+        Map<String, Report> loaded = null;
+        int count = 0;
+
+        if (archive != null) {
+            archive.load();
+        }
+
+        try {
+            if (bodies != null && repository.exists()) {
+                count = streamIntoIndexes();
+            } else {
+                loaded = repository.exists() ? repository.loadAll() : importFromOtherStorage();
             }
         } catch (IOException e) {
             plugin.getLogger().severe("Ошибка загрузки данных: " + e.getMessage());
             e.printStackTrace();
         }
+
+        if (loaded != null) {
+            indexReports(loaded.values());
+            count = loaded.size();
+            if (bodies == null) {
+                for (Report report : loaded.values()) {
+                    reports.put(report.getKey(), report);
+                }
+            }
+        }
+        ready = true;
+
+        plugin.getLogger().info("Загружено жалоб: " + count + " (хранилище: " + repository.getName()
+                + (bodies != null ? ", по требованию" : "") + ", "
+                + (System.currentTimeMillis() - startedAt) + " мс), система жалоб готова");
+        if (TextArena.getAllocatedBytes() > 0) {
+            plugin.getLogger().info("Тексты жалоб вне кучи: " + TextArena.getAllocatedBytes() / 1024 + " КБ");
+        }
+
+        // Отложенные команды и действия из Discord выполняются в основном потоке
+        if (plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTask(plugin, this::runPendingTasks);
+        }
     }
 
+    /**
+     * Строит индексы пачками, не удерживая в памяти тела всех жалоб
+     */
+    private int streamIntoIndexes() throws IOException {
+        List<Report> batch = new ArrayList<>(LOAD_BATCH);
+        int[] count = new int[1];
+        repository.forEach(report -> {
+            batch.add(report);
+            count[0]++;
+            if (batch.size() >= LOAD_BATCH) {
+                indexReports(batch);
+                batch.clear();
+            }
+        });
+        indexReports(batch);
+        return count[0];
+    }
+
+    private void indexReports(Collection<Report> loadedReports) {
+        // Индексы независимы друг от друга - строим их параллельно
+        CompletableFuture<Void> mainIndex = CompletableFuture.runAsync(() -> {
+            for (Report report : loadedReports) {
+                playerReports.update(report);
+                recordActivity(report, index.update(report));
+            }
+        });
+        CompletableFuture<Void> textIndex = CompletableFuture.runAsync(() -> {
+            for (Report report : loadedReports) {
+                searchIndex.update(report);
+            }
+        });
+        CompletableFuture.allOf(mainIndex, textIndex).join();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Выполняет задачу сразу, если жалобы уже загружены, иначе - после загрузки (в основном потоке).
+     * Вызывается только из основного потока.
+     */
+    public void whenReady(Runnable task) {
+        if (ready && pendingTasks.isEmpty()) {
+            task.run();
+            return;
+        }
+        pendingTasks.add(task);
+    }
+
+    private void runPendingTasks() {
+        int count = 0;
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                plugin.getLogger().severe("Ошибка выполнения отложенной задачи: " + e.getMessage());
+                e.printStackTrace();
+            }
+            count++;
+        }
+
+        if (count > 0) {
+            plugin.getLogger().info("Выполнено отложенных действий после загрузки: " + count);
+        }
+    }
+
+    /**
+     * Однократный импорт при смене типа хранилища: данные из другого найденного
+     * хранилища переносятся в текущее, а старые файлы получают суффикс .migrated
+     */
+    private Map<String, Report> importFromOtherStorage() throws IOException {
+        for (String type : new String[]{"sql", "binary", "json"}) {
+            if (type.equals(repository.getName())) {
+                continue;
+            }
+
+            ReportRepository source = createRepository(type);
+            if (!source.exists()) {
+                source.close();
+                continue;
+            }
+
+            Map<String, Report> imported = source.loadAll();
+            repository.importAll(imported.values());
+            source.retire();
+            source.close();
+
+            plugin.getLogger().info("Импортировано жалоб из хранилища " + type + ": " + imported.size());
+            return imported;
+        }
+
+        return repository.loadAll();
+    }
+
+    /**
+     * Запрашивает полную фиксацию состояния в потоке записи
+     */
     public void saveAllData() {
+        writer.execute(this::checkpoint);
+    }
+
+    /**
+     * Записывает изменённые жалобы (вызывается только в потоке записи)
+     */
+    private void persist(List<Long> reportKeys) {
+        List<Report> changed = new ArrayList<>(reportKeys.size());
+        for (Long reportKey : reportKeys) {
+            // Дожидается замены, которая пометила жалобу (см. updateReport)
+            reports.computeIfPresent(reportKey, (key, report) -> {
+                changed.add(report);
+                return report;
+            });
+        }
+
         try {
-            if (!dataFile.exists()) {
-                dataFile.getParentFile().mkdirs();
-                dataFile.createNewFile();
+            repository.save(changed, reports.values());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Ошибка сохранения данных: " + e.getMessage());
+            e.printStackTrace();
+            // Повторим запись при следующем flush
+            reportKeys.forEach(writer::markDirty);
+            return;
+        }
+
+        // Снятие архивных копий с учёта записывается только после сохранения оперативных версий,
+        // иначе при сбое жалоба пропала бы и из архива, и из хранилища
+        if (archive != null) {
+            try {
+                archive.saveRemovals();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Ошибка записи манифеста архива: " + e.getMessage());
             }
+        }
+    }
+
+    /**
+     * Записанные жалобы больше не нужно держать в памяти - они остаются только в кэше
+     * (вызывается в потоке записи после каждого пакета)
+     */
+    private void releaseWritten(List<Long> reportKeys) {
+        for (Long reportKey : reportKeys) {
+            // Под блокировкой ключа, как и публикация новой версии: проверка и удаление атомарны
+            reports.computeIfPresent(reportKey, (key, report) -> {
+                if (writer.isPending(key)) {
+                    return report;
+                }
+                bodies.put(report);
+                releases.incrementAndGet(stripe(key));
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Заранее загружает в кэш последние жалобы игрока (при входе на сервер), чтобы /reports
+     * не обращался к диску. Вызывается из основного потока.
+     */
+    public void prefetchPlayer(UUID playerUUID) {
+        if (bodies == null || !ready) {
+            return;
+        }
 
-            try (Writer writer = new FileWriter(dataFile)) {
-                gson.toJson(reports, writer);
-                plugin.getLogger().info("Данные сохранены: " + reports.size() + " жалоб");
+        int limit = plugin.getConfig().getInt("storage.lazy-load.prefetch-limit", 50);
+        List<Long> missing = new ArrayList<>();
+        for (Long reportKey : playerReports.findByReporter(playerUUID)) {
+            if (missing.size() >= limit) {
+                break;
             }
+            if (!reports.containsKey(reportKey) && bodies.get(reportKey) == null) {
+                missing.add(reportKey);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<Report> loaded = load(missing);
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                for (Report report : loaded) {
+                    if (!reports.containsKey(report.getKey())) {
+                        bodies.putIfAbsent(report);
+                    }
+                }
+            });
+        });
+    }
+
+    private List<Report> load(Collection<Long> reportKeys) {
+        try {
+            return ((LookupRepository) repository).findByKeys(reportKeys);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Ошибка загрузки жалоб: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Жалоба по ключу: из памяти, из кэша или с диска (без архива)
+     */
+    private Report lookup(long reportKey) {
+        Report report = reports.get(reportKey);
+        if (report != null || bodies == null) {
+            return report;
+        }
+
+        report = bodies.get(reportKey);
+        if (report != null || !index.contains(reportKey)) {
+            return report;
+        }
+
+        for (Report loaded : load(Collections.singletonList(reportKey))) {
+            bodies.putIfAbsent(loaded);
+            report = loaded;
+        }
+        return report;
+    }
+
+    private void checkpoint() {
+        try {
+            repository.checkpoint(reports.values());
         } catch (IOException e) {
             plugin.getLogger().severe("Ошибка сохранения данных: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Сохраняет новую жалобу. Изменения существующих выполняются через updateReport.
+     */
     public void saveReport(Report report) {
-        String reportId = report.getId();
-        UUID playerUUID = report.getReporterUUID();
+        long reportKey = report.getKey();
+        synchronized (publishLocks[stripe(reportKey)]) {
+            reports.compute(reportKey, (key, current) -> {
+                writer.markDirty(key);
+                return report;
+            });
+            publish(report);
+        }
+        writer.flushIfStopped();
+    }
+
+    /**
+     * Compare-and-swap: заменяет версию expected на updated, только если жалобу с тех пор никто не изменил
+     *
+     * @return false при конфликте - updated не сохранена, нужно перечитать жалобу
+     */
+    public boolean updateReport(Report expected, Report updated) {
+        if (expected.getKey() != updated.getKey()) {
+            throw new IllegalArgumentException("Report " + updated.getId() + " cannot replace " + expected.getId());
+        }
+
+        long reportKey = expected.getKey();
+        int stripe = stripe(reportKey);
+        long releasesBefore = releases.get(stripe);
+        Report current = reports.get(reportKey);
+
+        // Чтение из базы выполняется до замены, без блокировок.
+        // Архивная жалоба (нет ни в памяти, ни в индексе) возвращается в оперативный набор без проверки
+        Report actual = current != null ? current : lookup(reportKey);
+        if (actual != null && actual.getVersion() != expected.getVersion()) {
+            return false;
+        }
+
+        boolean[] swapped = new boolean[1];
+        synchronized (publishLocks[stripe]) {
+            reports.compute(reportKey, (key, present) -> {
+                // Жалобу заменили или выгрузили из памяти после чтения (прочитанная из базы версия
+                // могла устареть) - вызывающий перечитает её
+                if (present != current || releases.get(stripe) != releasesBefore) {
+                    return present;
+                }
+                // Под блокировкой ключа: поток записи, взявший ключ в пакет, прочитает уже эту версию
+                writer.markDirty(key);
+                swapped[0] = true;
+                return updated;
+            });
+            if (!swapped[0]) {
+                return false;
+            }
+            publish(updated);
+        }
+        writer.flushIfStopped();
+
+        // Теперь жалобу учитывают оперативные индексы - снимаем с учёта её архивную копию
+        if (actual == null && archive != null) {
+            archive.remove(updated.getId());
+        }
+        return true;
+    }
+
+    /**
+     * Применяет изменение к актуальной версии жалобы, повторяя его при конфликте
+     *
+     * @return сохранённая версия или null, если жалоба не найдена
+     */
+    public Report modifyReport(String reportId, UnaryOperator<Report> change) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Report current = getReport(reportId);
+            if (current == null) {
+                return null;
+            }
+            Report updated = change.apply(current);
+            if (updated == current || updateReport(current, updated)) {
+                return updated;
+            }
+        }
+
+        plugin.getLogger().warning("Не удалось изменить жалобу #" + reportId + ": слишком много одновременных изменений");
+        return null;
+    }
+
+    /**
+     * Атомарный переход статуса: выполняется, только если жалоба сейчас в статусе expected.
+     * Из двух одновременных решений разных модераторов применится ровно одно.
+     * Потокобезопасен, основной поток не нужен.
+     *
+     * @param adminComment комментарий к решению или null, чтобы оставить текущий
+     */
+    public StatusTransition transition(String reportId, Report.ReportStatus expected, Report.ReportStatus next,
+                                       String reviewedBy, String reviewedById, String adminComment) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Report current = getReport(reportId);
+            if (current == null) {
+                return StatusTransition.of(StatusTransition.Outcome.NOT_FOUND, null);
+            }
+
+            if (current.getStatus() != expected) {
+                boolean repeated = current.getStatus() == next
+                        && reviewedById != null && reviewedById.equals(current.getReviewedById());
+                return StatusTransition.of(repeated
+                        ? StatusTransition.Outcome.UNCHANGED : StatusTransition.Outcome.CONFLICT, current);
+            }
+
+            Report updated = current.withReview(next, reviewedBy, reviewedById, new Date());
+            if (adminComment != null) {
+                updated = updated.withAdminComment(adminComment);
+            }
+            // Проигрыш CAS означает любое изменение (например, комментарий) - перечитываем и проверяем статус снова
+            if (updateReport(current, updated)) {
+                return StatusTransition.of(StatusTransition.Outcome.APPLIED, updated);
+            }
+        }
+
+        plugin.getLogger().warning("Не удалось изменить статус жалобы #" + reportId
+                + ": слишком много одновременных изменений");
+        return StatusTransition.of(StatusTransition.Outcome.CONFLICT, getReport(reportId));
+    }
+
+    /**
+     * Обновляет индексы и кэш новой версией (вызывается после замены в reports под publishLocks,
+     * поэтому версии одной жалобы попадают в индексы в том же порядке, что и в карту)
+     */
+    private void publish(Report report) {
+        if (bodies != null) {
+            bodies.put(report);
+        }
+
+        // Новая жалоба попадает во все индексы, существующая - переносится в множество нового статуса
+        playerReports.update(report);
+        recordActivity(report, index.update(report));
+        searchIndex.update(report);
+    }
+
+    private static int stripe(long reportKey) {
+        // Младшие биты времени и последовательности ключа
+        return (int) (reportKey ^ (reportKey >>> ReportIds.TIME_SHIFT)) & (PUBLISH_STRIPES - 1);
+    }
+
+    /**
+     * Учитывает создание и рассмотрение жалобы в почасовой и посуточной статистике
+     *
+     * @param previous статус до обновления индекса (null для новой жалобы)
+     */
+    private void recordActivity(Report report, Report.ReportStatus previous) {
+        long now = System.currentTimeMillis();
+        Report.ReportStatus status = report.getStatus();
 
-        // Сохраняем репорт
-        reports.put(reportId, report);
+        if (previous == null) {
+            hourlyActivity.record(Report.ReportStatus.PENDING, report.getCreatedAtMillis(), now);
+            dailyActivity.record(Report.ReportStatus.PENDING, report.getCreatedAtMillis(), now);
+        }
 
-        // ИСПРАВЛЕНО: Добавляем в индекс только если его там еще нет
-        List<String> playerReportIds = playerReports.computeIfAbsent(playerUUID, k -> new ArrayList<>());
-        if (!playerReportIds.contains(reportId)) {
-            playerReportIds.add(reportId);
+        if (status != Report.ReportStatus.PENDING && status != previous) {
+            long reviewedAt = report.getReviewedAt() != null ? report.getReviewedAt().getTime() : now;
+            hourlyActivity.record(status, reviewedAt, now);
+            dailyActivity.record(status, reviewedAt, now);
         }
+    }
+
+    /**
+     * Число жалоб, изменения которых ещё не записаны на диск
+     */
+    public int getPendingWrites() {
+        return writer.getPendingCount();
+    }
+
+    /**
+     * Кэш тел жалоб или null, если все жалобы держатся в памяти (storage.lazy-load выключен)
+     */
+    public ReportCache getCache() {
+        return bodies;
+    }
+
+    /**
+     * Выполняет задачу, когда последнее изменение жалобы записано на диск
+     * (сразу или в потоке записи)
+     */
+    public void whenWritten(String reportId, Runnable task) {
+        writer.whenWritten(ReportIds.toKey(reportId), task);
+    }
 
-        saveAllData();
+    /**
+     * Записывает оставшиеся изменения, сворачивает журнал и останавливает поток записи
+     */
+    public void shutdown() {
+        writer.shutdown(() -> {
+            checkpoint();
+            repository.close();
+            idAllocator.close();
+        });
+    }
+
+    /**
+     * Новый уникальный ID жалобы
+     */
+    public String nextReportId() {
+        return ReportIds.format(idAllocator.next());
+    }
+
+    /**
+     * Поиск жалобы по ID вне основного потока: при storage.lazy-load и для архивных жалоб это чтение
+     * с диска. Жалоба (или null) передаётся в основной поток. Вызывается из основного потока.
+     */
+    public void getReport(String id, Consumer<Report> callback) {
+        loadAsync(() -> getReport(id), callback);
     }
 
     public Report getReport(String id) {
-        return reports.get(id);
+        Report report = lookup(ReportIds.toKey(id));
+        if (report == null && archive != null) {
+            report = archive.find(id);
+        }
+        return report;
     }
 
+    /**
+     * Все жалобы игрока, включая архивные (новые первые)
+     */
     public List<Report> getPlayerReports(UUID playerUUID) {
-        List<String> reportIds = playerReports.getOrDefault(playerUUID, new ArrayList<>());
-        List<Report> result = new ArrayList<>();
+        List<Report> result = getActivePlayerReports(playerUUID);
 
-        for (String id : reportIds) {
-            Report report = reports.get(id);
-            if (report != null) {
-                result.add(report);
+        if (archive != null) {
+            Set<Long> activeKeys = new HashSet<>();
+            for (Report report : result) {
+                activeKeys.add(report.getKey());
+            }
+            for (Report report : archive.findByReporter(playerUUID)) {
+                if (!activeKeys.contains(report.getKey())) {
+                    result.add(report);
+                }
             }
         }
 
         // Сортируем по дате создания (новые первые)
-        result.sort((r1, r2) -> r2.getCreatedAt().compareTo(r1.getCreatedAt()));
+        result.sort((r1, r2) -> Long.compare(r2.getCreatedAtMillis(), r1.getCreatedAtMillis()));
+
+        return result;
+    }
+
+    /**
+     * Жалобы игрока без архива
+     */
+    private List<Report> getActivePlayerReports(UUID playerUUID) {
+        return resolve(playerReports.findByReporter(playerUUID));
+    }
+
+    /**
+     * Постраничный запрос жалоб вне основного потока: архивные сегменты и (при lazy-load) тела жалоб
+     * читаются с диска в асинхронной задаче, а готовая страница передаётся в основной поток.
+     * Вызывается из основного потока.
+     */
+    public void queryReports(ReportQuery query, Consumer<ReportPage> callback) {
+        loadAsync(() -> queryReports(query), callback);
+    }
 
+    /**
+     * Выполняет чтение в асинхронной задаче и передаёт результат в основной поток
+     */
+    private <T> void loadAsync(Supplier<T> loader, Consumer<T> callback) {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            T result = loader.get();
+            plugin.getServer().getScheduler().runTask(plugin, () -> callback.accept(result));
+        });
+    }
+
+    /**
+     * Постраничный запрос жалоб. Страница стоит O(размер страницы): жалобы игрока
+     * хранятся в индексе уже упорядоченными по дате, а курсор указывает место продолжения.
+     * Для запроса по игроку архивные жалобы подмешиваются в общий порядок - это чтение с диска,
+     * поэтому из основного потока используется асинхронный вариант.
+     */
+    private ReportPage queryReports(ReportQuery query) {
+        ReportKey after = ReportKey.decode(query.getCursor());
+        boolean descending = query.getOrder() == ReportQuery.Order.NEWEST_FIRST;
+        int limit = query.getPageSize() + 1; // лишний элемент показывает, есть ли следующая страница
+
+        // Фильтры проверяются по индексу, тела загружаются только для попавших на страницу жалоб
+        List<ReportKey> keys = query.getReporterUUID() != null
+                ? playerReports.scan(query.getReporterUUID(), after, descending, limit,
+                        key -> index.matches(key.key, query))
+                : index.scan(query, after, descending, limit);
+
+        List<Long> reportKeys = new ArrayList<>(keys.size());
+        for (ReportKey key : keys) {
+            reportKeys.add(key.key);
+        }
+        Map<Long, Report> bodiesByKey = new HashMap<>();
+        for (Report report : resolve(reportKeys)) {
+            bodiesByKey.put(report.getKey(), report);
+        }
+
+        Map<ReportKey, Report> page = new LinkedHashMap<>();
+        for (ReportKey key : keys) {
+            Report report = bodiesByKey.get(key.key);
+            if (report != null) {
+                page.put(key, report);
+            }
+        }
+
+        UUID reporterUUID = query.getReporterUUID();
+        if (reporterUUID != null && archive != null && archive.countByReporter(reporterUUID, null) > 0) {
+            page = mergeArchived(page, reporterUUID, query, after, descending, limit);
+        }
+
+        List<Report> result = new ArrayList<>(Math.min(page.size(), query.getPageSize()));
+        ReportKey last = null;
+        for (Map.Entry<ReportKey, Report> entry : page.entrySet()) {
+            if (result.size() >= query.getPageSize()) {
+                break;
+            }
+            result.add(entry.getValue());
+            last = entry.getKey();
+        }
+
+        String nextCursor = page.size() > query.getPageSize() && last != null ? last.encode() : null;
+        return new ReportPage(result, nextCursor, countQueryTotal(query));
+    }
+
+    /**
+     * Сливает страницу оперативных жалоб с архивными в едином порядке (оперативная версия важнее)
+     */
+    private Map<ReportKey, Report> mergeArchived(Map<ReportKey, Report> hot, UUID reporterUUID, ReportQuery query,
+                                                 ReportKey after, boolean descending, int limit) {
+        Comparator<ReportKey> order = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        TreeMap<ReportKey, Report> merged = new TreeMap<>(order);
+        merged.putAll(hot);
+
+        for (Report report : archive.findByReporter(reporterUUID)) {
+            if (index.contains(report.getKey()) || !query.matches(report)) {
+                continue;
+            }
+            ReportKey key = ReportKey.of(report);
+            if (after == null || order.compare(key, after) > 0) {
+                merged.put(key, report);
+            }
+        }
+
+        Map<ReportKey, Report> result = new LinkedHashMap<>();
+        for (Map.Entry<ReportKey, Report> entry : merged.entrySet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.put(entry.getKey(), entry.getValue());
+        }
         return result;
     }
 
+    private int countQueryTotal(ReportQuery query) {
+        if (query.hasViolatorFilter()) {
+            return -1;
+        }
+
+        UUID reporterUUID = query.getReporterUUID();
+        if (query.getStatus() != null) {
+            return reporterUUID != null
+                    ? getPlayerReportCount(reporterUUID, query.getStatus())
+                    : index.countByStatus(query.getStatus());
+        }
+
+        int total = 0;
+        for (Report.ReportStatus status : Report.ReportStatus.values()) {
+            total += reporterUUID != null ? getPlayerReportCount(reporterUUID, status) : index.countByStatus(status);
+        }
+        return total;
+    }
+
+    /**
+     * Жалобы в памяти (без архива). При storage.lazy-load - только ещё не записанные на диск.
+     */
     public List<Report> getAllReports() {
         return new ArrayList<>(reports.values());
     }
 
+    /**
+     * Полнотекстовый поиск по причине и комментариям (без архива): до limit жалоб, от новых к старым.
+     * При storage.lazy-load тела найденных жалоб читаются с диска, поэтому поиск выполняется
+     * в асинхронной задаче, а результат передаётся в основной поток. Вызывается из основного потока.
+     */
+    public void searchReports(String query, int limit, Consumer<List<Report>> callback) {
+        loadAsync(() -> searchReports(query, limit), callback);
+    }
+
+    private List<Report> searchReports(String query, int limit) {
+        return resolve(index.newest(searchIndex.search(query), limit));
+    }
+
+    /**
+     * Жалобы по ключам в том же порядке; недостающие в памяти загружаются с диска одним запросом
+     */
+    private List<Report> resolve(List<Long> reportKeys) {
+        Map<Long, Report> loaded = Collections.emptyMap();
+        if (bodies != null) {
+            List<Long> missing = new ArrayList<>();
+            for (Long reportKey : reportKeys) {
+                if (!reports.containsKey(reportKey) && bodies.get(reportKey) == null) {
+                    missing.add(reportKey);
+                }
+            }
+            if (!missing.isEmpty()) {
+                loaded = new HashMap<>();
+                for (Report report : load(missing)) {
+                    bodies.putIfAbsent(report);
+                    loaded.put(report.getKey(), report);
+                }
+            }
+        }
+
+        List<Report> result = new ArrayList<>(reportKeys.size());
+        for (Long reportKey : reportKeys) {
+            Report report = reports.get(reportKey);
+            if (report == null && bodies != null) {
+                report = loaded.get(reportKey);
+                if (report == null) {
+                    report = bodies.get(reportKey);
+                }
+            }
+            if (report != null) {
+                result.add(report);
+            }
+        }
+        return result;
+    }
+
     public int getActiveReportsCount(UUID playerUUID) {
-        return (int) getPlayerReports(playerUUID).stream()
-                .filter(r -> r.getStatus() == Report.ReportStatus.PENDING)
-                .count();
+        // На рассмотрении жалобы никогда не попадают в архив
+        return playerReports.count(playerUUID, Report.ReportStatus.PENDING);
+    }
+
+    /**
+     * Количество жалоб игрока с указанным статусом, включая архив
+     */
+    public int getPlayerReportCount(UUID playerUUID, Report.ReportStatus status) {
+        int count = playerReports.count(playerUUID, status);
+        if (archive != null) {
+            count += archive.countByReporter(playerUUID, status);
+        }
+        return count;
     }
 
     public Map<Report.ReportStatus, Integer> getStatusStatistics() {
         Map<Report.ReportStatus, Integer> stats = new HashMap<>();
         for (Report.ReportStatus status : Report.ReportStatus.values()) {
-            stats.put(status, 0);
+            stats.put(status, getStatusCount(status));
         }
 
-        for (Report report : reports.values()) {
-            stats.merge(report.getStatus(), 1, Integer::sum);
+        return stats;
+    }
+
+    /**
+     * Общее количество жалоб со статусом, включая архив
+     */
+    public int getStatusCount(Report.ReportStatus status) {
+        int count = index.countByStatus(status);
+        if (archive != null) {
+            count += archive.countByStatus(status);
         }
+        return count;
+    }
 
-        return stats;
+    /**
+     * Количество событий за последние hours часов (не больше 48):
+     * для PENDING - созданные жалобы, для остальных статусов - рассмотренные
+     */
+    public int getActivityLastHours(Report.ReportStatus status, int hours) {
+        return hourlyActivity.sum(status, System.currentTimeMillis(), hours);
+    }
+
+    /**
+     * Количество событий за последние days дней (не больше 30)
+     */
+    public int getActivityLastDays(Report.ReportStatus status, int days) {
+        return dailyActivity.sum(status, System.currentTimeMillis(), days);
     }
 
     public Map<Report.ReportStatus, Integer> getPlayerStatistics(UUID playerUUID) {
         Map<Report.ReportStatus, Integer> stats = new HashMap<>();
         for (Report.ReportStatus status : Report.ReportStatus.values()) {
-            stats.put(status, 0);
-        }
-
-        for (Report report : getPlayerReports(playerUUID)) {
-            stats.merge(report.getStatus(), 1, Integer::sum);
+            stats.put(status, getPlayerReportCount(playerUUID, status));
         }
 
         return stats;
@@ -0,0 +1,135 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Файловое хранилище: снапшот всех жалоб плюс журнал изменений.
+ * Формат снапшота определяется наследником.
+ */
+public abstract class FileReportRepository implements ReportRepository {
+
+    protected final SnapshotFile snapshot;
+    protected final Logger logger;
+    private final ReportJournal journal; // null, если журнал отключён
+    private final int compactThreshold;
+
+    protected FileReportRepository(SnapshotFile snapshot, ReportJournal journal, int compactThreshold, Logger logger) {
+        this.snapshot = snapshot;
+        this.journal = journal;
+        this.compactThreshold = Math.max(1, compactThreshold);
+        this.logger = logger;
+    }
+
+    protected abstract Map<String, Report> readContent(InputStream input) throws IOException;
+
+    protected abstract void writeContent(Collection<Report> reports, OutputStream output) throws IOException;
+
+    @Override
+    public boolean exists() {
+        return snapshot.exists();
+    }
+
+    @Override
+    public Map<String, Report> loadAll() {
+        Map<String, Report> reports = new HashMap<>();
+
+        if (!snapshot.exists()) {
+            logger.info("Файл данных не найден, создаём новый...");
+        } else {
+            try {
+                Map<String, Report> loaded = snapshot.read(this::readContent);
+                if (loaded != null) {
+                    reports.putAll(loaded);
+                }
+            } catch (IOException e) {
+                logger.severe("Ошибка загрузки данных: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        // Доигрываем изменения из журнала поверх снапшота
+        if (journal != null) {
+            try {
+                int replayed = journal.replay(reports);
+                if (replayed > 0) {
+                    logger.info("Восстановлено записей из журнала: " + replayed);
+                }
+            } catch (IOException e) {
+                logger.severe("Ошибка чтения журнала: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        return reports;
+    }
+
+    @Override
+    public void save(Collection<Report> changed, Collection<Report> all) throws IOException {
+        if (journal == null) {
+            checkpoint(all);
+            return;
+        }
+
+        // Дописываем только изменения, полный снапшот - при компактизации
+        try {
+            for (Report report : changed) {
+                journal.append(report);
+            }
+            journal.sync();
+        } catch (IOException e) {
+            logger.severe("Ошибка записи в журнал: " + e.getMessage());
+            checkpoint(all);
+            return;
+        }
+
+        if (journal.getEntries() >= compactThreshold) {
+            checkpoint(all);
+        }
+    }
+
+    @Override
+    public void delete(Collection<String> reportIds, Collection<Report> all) throws IOException {
+        // Новый снапшот уже не содержит удалённых жалоб, а журнал обнуляется
+        checkpoint(all);
+    }
+
+    @Override
+    public void checkpoint(Collection<Report> all) throws IOException {
+        snapshot.write(output -> writeContent(all, output));
+        logger.info("Данные сохранены: " + all.size() + " жалоб");
+
+        // Снапшот содержит все изменения журнала
+        if (journal != null) {
+            journal.reset();
+        }
+    }
+
+    @Override
+    public void importAll(Collection<Report> reports) throws IOException {
+        // Журнал не нужен: снапшот сразу содержит все жалобы
+        checkpoint(reports);
+    }
+
+    @Override
+    public void retire() throws IOException {
+        snapshot.archive("migrated");
+        if (journal != null) {
+            journal.archive("migrated");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Хранилище в reports.json (объект "id -> жалоба")
+ */
+public class JsonReportRepository extends FileReportRepository {
+
+    private static final Type REPORTS_TYPE = new TypeToken<Map<String, Report>>(){}.getType();
+
+    private final Gson gson;
+
+    public JsonReportRepository(SnapshotFile snapshot, ReportJournal journal, int compactThreshold,
+                                Gson gson, Logger logger) {
+        super(snapshot, journal, compactThreshold, logger);
+        this.gson = gson;
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    protected Map<String, Report> readContent(InputStream input) {
+        return gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), REPORTS_TYPE);
+    }
+
+    @Override
+    protected void writeContent(Collection<Report> reports, OutputStream output) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        JsonWriter json = gson.newJsonWriter(writer);
+        json.beginObject();
+        for (Report report : reports) {
+            json.name(report.getId());
+            gson.toJson(report, Report.class, json);
+        }
+        json.endObject();
+        json.flush();
+    }
+}
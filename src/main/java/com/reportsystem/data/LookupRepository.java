@@ -0,0 +1,23 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Хранилище, которое умеет загружать отдельные жалобы без загрузки всех (нужно для storage.lazy-load)
+ */
+public interface LookupRepository extends ReportRepository {
+
+    /**
+     * Загружает жалобы по ключам (ReportIds.toKey). Может вызываться из любого потока.
+     */
+    List<Report> findByKeys(Collection<Long> keys) throws IOException;
+
+    /**
+     * Рассмотренные жалобы, закрытые (или созданные, если время рассмотрения неизвестно) раньше threshold
+     */
+    List<Report> findResolvedBefore(long threshold) throws IOException;
+}
@@ -0,0 +1,157 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Жалобы каждого отправителя, упорядоченные по дате создания, и счётчики по статусам.
+ * Игроки распределены по полосам (stripes) со своей блокировкой чтения/записи:
+ * основной поток и обработчики Discord, работающие с разными игроками, не мешают друг другу,
+ * а читатели всегда получают копию, поэтому не видят частично изменённых данных.
+ */
+public class PlayerReportIndex {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes;
+
+    /**
+     * Данные одного отправителя
+     */
+    private static final class PlayerEntry {
+        final NavigableSet<ReportKey> keys = new TreeSet<>();
+        final Map<Long, Report.ReportStatus> statuses = new HashMap<>(); // ключ жалобы -> статус, проверка дубликатов за O(1)
+        final int[] counts = new int[Report.ReportStatus.values().length];
+    }
+
+    private static final class Stripe {
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<UUID, PlayerEntry> players = new HashMap<>();
+    }
+
+    public PlayerReportIndex() {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Добавляет жалобу или обновляет её статус, если она уже есть в индексе
+     *
+     * @return статус до обновления или null для новой жалобы
+     */
+    public Report.ReportStatus update(Report report) {
+        UUID reporterUUID = report.getReporterUUID();
+        Report.ReportStatus status = report.getStatus();
+        Stripe stripe = stripe(reporterUUID);
+
+        stripe.lock.writeLock().lock();
+        try {
+            PlayerEntry entry = stripe.players.computeIfAbsent(reporterUUID, k -> new PlayerEntry());
+            Report.ReportStatus previous = entry.statuses.put(report.getKey(), status);
+
+            if (previous == null) {
+                entry.keys.add(ReportKey.of(report));
+                entry.counts[status.ordinal()]++;
+            } else if (previous != status) {
+                entry.counts[previous.ordinal()]--;
+                entry.counts[status.ordinal()]++;
+            }
+            return previous;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Report report) {
+        UUID reporterUUID = report.getReporterUUID();
+        Stripe stripe = stripe(reporterUUID);
+
+        stripe.lock.writeLock().lock();
+        try {
+            PlayerEntry entry = stripe.players.get(reporterUUID);
+            if (entry == null) {
+                return;
+            }
+
+            Report.ReportStatus status = entry.statuses.remove(report.getKey());
+            if (status == null) {
+                return;
+            }
+            entry.keys.remove(ReportKey.of(report));
+            entry.counts[status.ordinal()]--;
+
+            if (entry.statuses.isEmpty()) {
+                stripe.players.remove(reporterUUID);
+            }
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ключи жалоб отправителя, от новых к старым (копия)
+     */
+    public List<Long> findByReporter(UUID reporterUUID) {
+        Stripe stripe = stripe(reporterUUID);
+
+        stripe.lock.readLock().lock();
+        try {
+            PlayerEntry entry = stripe.players.get(reporterUUID);
+            if (entry == null) {
+                return new ArrayList<>();
+            }
+
+            List<Long> result = new ArrayList<>(entry.keys.size());
+            for (ReportKey key : entry.keys.descendingSet()) {
+                result.add(key.key);
+            }
+            return result;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Следующие limit ключей отправителя после курсора, удовлетворяющие фильтру
+     */
+    List<ReportKey> scan(UUID reporterUUID, ReportKey after, boolean descending,
+                         int limit, Predicate<ReportKey> filter) {
+        Stripe stripe = stripe(reporterUUID);
+
+        stripe.lock.readLock().lock();
+        try {
+            PlayerEntry entry = stripe.players.get(reporterUUID);
+            if (entry == null) {
+                return new ArrayList<>();
+            }
+            return ReportIndex.scan(entry.keys, after, descending, limit, filter);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количество жалоб отправителя с указанным статусом
+     */
+    public int count(UUID reporterUUID, Report.ReportStatus status) {
+        Stripe stripe = stripe(reporterUUID);
+
+        stripe.lock.readLock().lock();
+        try {
+            PlayerEntry entry = stripe.players.get(reporterUUID);
+            return entry != null ? entry.counts[status.ordinal()] : 0;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    private Stripe stripe(UUID playerUUID) {
+        return stripes[(playerUUID.hashCode() & 0x7fffffff) % STRIPES];
+    }
+}
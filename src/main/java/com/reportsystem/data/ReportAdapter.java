@@ -1,108 +1,165 @@
 package com.reportsystem.data;
 
 import com.reportsystem.models.Report;
-import com.google.gson.*;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.Date;
 import java.util.UUID;
 
-public class ReportAdapter implements JsonSerializer<Report>, JsonDeserializer<Report> {
+/**
+ * Потоковый адаптер жалобы: пишет и читает JSON напрямую через JsonWriter/JsonReader,
+ * без промежуточного дерева JsonObject. Формат совпадает с прежним reports.json.
+ */
+public class ReportAdapter extends TypeAdapter<Report> {
 
     @Override
-    public JsonElement serialize(Report report, Type type, JsonSerializationContext context) {
-        JsonObject json = new JsonObject();
+    public void write(JsonWriter out, Report report) throws IOException {
+        if (report == null) {
+            out.nullValue();
+            return;
+        }
 
-        json.addProperty("id", report.getId());
-        json.addProperty("reporterUUID", report.getReporterUUID().toString());
-        json.addProperty("reporterName", report.getReporterName());
-        json.addProperty("violatorName", report.getViolatorName());
+        out.beginObject();
+        out.name("id").value(report.getId());
+        out.name("reporterUUID").value(report.getReporterUUID().toString());
+        out.name("reporterName").value(report.getReporterName());
+        out.name("violatorName").value(report.getViolatorName());
 
         // Сохраняем UUID нарушителя если он есть
         if (report.getViolatorUUID() != null) {
-            json.addProperty("violatorUUID", report.getViolatorUUID().toString());
+            out.name("violatorUUID").value(report.getViolatorUUID().toString());
         }
 
-        json.addProperty("reason", report.getReason());
-        json.addProperty("comment", report.getComment());
-        json.addProperty("createdAt", report.getCreatedAt().getTime());
-        json.addProperty("status", report.getStatus().getKey());
+        out.name("reason").value(report.getReason());
+        out.name("comment").value(report.getComment());
+        out.name("createdAt").value(report.getCreatedAtMillis());
+        out.name("status").value(report.getStatus().getKey());
 
         if (report.getAdminComment() != null) {
-            json.addProperty("adminComment", report.getAdminComment());
+            out.name("adminComment").value(report.getAdminComment());
         }
         if (report.getReviewedBy() != null) {
-            json.addProperty("reviewedBy", report.getReviewedBy());
+            out.name("reviewedBy").value(report.getReviewedBy());
         }
         if (report.getReviewedById() != null) {
-            json.addProperty("reviewedById", report.getReviewedById());
+            out.name("reviewedById").value(report.getReviewedById());
         }
         if (report.getReviewedAt() != null) {
-            json.addProperty("reviewedAt", report.getReviewedAt().getTime());
+            out.name("reviewedAt").value(report.getReviewedAt().getTime());
+        }
+        if (report.getDiscordMessageId() != 0) {
+            // Строкой, как и в Discord API: snowflake не помещается в double без потерь
+            out.name("discordMessageId").value(Long.toUnsignedString(report.getDiscordMessageId()));
         }
 
-        return json;
+        out.endObject();
     }
 
     @Override
-    public Report deserialize(JsonElement element, Type type, JsonDeserializationContext context)
-            throws JsonParseException {
-        JsonObject json = element.getAsJsonObject();
-
-        String id = json.get("id").getAsString();
-        UUID reporterUUID = UUID.fromString(json.get("reporterUUID").getAsString());
-        String reporterName = json.get("reporterName").getAsString();
-        String violatorName = json.get("violatorName").getAsString();
+    public Report read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
 
-        // Загружаем UUID нарушителя если он есть
+        String id = null;
+        UUID reporterUUID = null;
+        String reporterName = null;
+        String violatorName = null;
         UUID violatorUUID = null;
-        if (json.has("violatorUUID") && !json.get("violatorUUID").isJsonNull()) {
-            try {
-                violatorUUID = UUID.fromString(json.get("violatorUUID").getAsString());
-            } catch (Exception e) {
-                // Игнорируем ошибки парсинга UUID
+        String reason = null;
+        String comment = null;
+        Date createdAt = null;
+        String status = null;
+        String adminComment = null;
+        String reviewedBy = null;
+        String reviewedById = null;
+        Date reviewedAt = null;
+        long discordMessageId = 0L;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
             }
-        }
 
-        String reason = json.get("reason").getAsString();
-        String comment = json.get("comment").getAsString();
-
-        Report report = new Report(id, reporterUUID, reporterName, violatorName, violatorUUID, reason, comment);
-
-        // Восстанавливаем дату создания
-        if (json.has("createdAt")) {
-            long timestamp = json.get("createdAt").getAsLong();
-            // Используем reflection для установки final поля
-            try {
-                java.lang.reflect.Field field = Report.class.getDeclaredField("createdAt");
-                field.setAccessible(true);
-                field.set(report, new Date(timestamp));
-            } catch (Exception e) {
-                e.printStackTrace();
+            switch (name) {
+                case "id":
+                    id = in.nextString();
+                    break;
+                case "reporterUUID":
+                    reporterUUID = UUID.fromString(in.nextString());
+                    break;
+                case "reporterName":
+                    reporterName = in.nextString();
+                    break;
+                case "violatorName":
+                    violatorName = in.nextString();
+                    break;
+                case "violatorUUID":
+                    // Игнорируем ошибки парсинга UUID
+                    try {
+                        violatorUUID = UUID.fromString(in.nextString());
+                    } catch (IllegalArgumentException e) {
+                        violatorUUID = null;
+                    }
+                    break;
+                case "reason":
+                    reason = in.nextString();
+                    break;
+                case "comment":
+                    comment = in.nextString();
+                    break;
+                case "createdAt":
+                    createdAt = new Date(in.nextLong());
+                    break;
+                case "status":
+                    status = in.nextString();
+                    break;
+                case "adminComment":
+                    adminComment = in.nextString();
+                    break;
+                case "reviewedBy":
+                    reviewedBy = in.nextString();
+                    break;
+                case "reviewedById":
+                    reviewedById = in.nextString();
+                    break;
+                case "reviewedAt":
+                    reviewedAt = new Date(in.nextLong());
+                    break;
+                case "discordMessageId":
+                    try {
+                        discordMessageId = Long.parseUnsignedLong(in.nextString());
+                    } catch (NumberFormatException e) {
+                        discordMessageId = 0L;
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
             }
         }
+        in.endObject();
 
-        // Восстанавливаем статус
-        if (json.has("status")) {
-            report.setStatus(Report.ReportStatus.fromKey(json.get("status").getAsString()));
+        if (id == null || reporterUUID == null) {
+            throw new JsonParseException("Report without id or reporterUUID");
         }
 
-        // Восстанавливаем комментарий администратора
-        if (json.has("adminComment")) {
-            report.setAdminComment(json.get("adminComment").getAsString());
-        }
-
-        // Восстанавливаем информацию о проверке
-        if (json.has("reviewedBy")) {
-            report.setReviewedBy(json.get("reviewedBy").getAsString());
-        }
-        if (json.has("reviewedById")) {
-            report.setReviewedById(json.get("reviewedById").getAsString());
-        }
-        if (json.has("reviewedAt")) {
-            report.setReviewedAt(new Date(json.get("reviewedAt").getAsLong()));
-        }
+        Report report = new Report(id, reporterUUID, reporterName, violatorName, violatorUUID, reason, comment,
+                createdAt != null ? createdAt : new Date());
 
-        return report;
+        // Восстанавливаем статус, комментарий администратора и информацию о проверке
+        Report.ReportStatus reportStatus = status != null
+                ? Report.ReportStatus.fromKey(status) : Report.ReportStatus.PENDING;
+        return report.restore(0, reportStatus, adminComment, reviewedBy, reviewedById, reviewedAt,
+                discordMessageId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,504 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.reportsystem.utils.ReportIds;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Архив рассмотренных жалоб.
+ * Жалобы хранятся в сжатых сегментах archive/yyyy-MM-N.dat.gz - по одному на месяц создания.
+ * Новые жалобы дописываются в сегмент своего месяца: он перезаписывается целиком под следующим
+ * номером, манифест переключается на новый файл, а старый удаляется на следующем проходе.
+ * В памяти держится только манифест: какие отправители есть в сегменте и сколько у них
+ * одобренных/отклонённых жалоб. Сами сегменты загружаются лениво, в памяти остаются
+ * только несколько последних прочитанных.
+ * Жалоба, вернувшаяся из архива в оперативный набор, помечается в манифесте как удалённая
+ * из своего сегмента и больше не учитывается архивом.
+ */
+public class ReportArchive {
+
+    private static final int APPROVED = 0;
+    private static final int REJECTED = 1;
+    // Допуск при выборе сегмента по времени из ключа: после сбоя ключ может опережать дату создания
+    // на длину аренды ReportIdAllocator, а часы сервера - переводиться
+    private static final long KEY_TIME_SLACK = 10 * 60_000L;
+    // Сколько прочитанных сегментов держать в памяти
+    private static final int CACHED_SEGMENTS = 4;
+
+    private final File directory;
+    private final Logger logger;
+    private final Gson gson;
+    private final SnapshotFile manifestFile;
+    private volatile List<Segment> segments; // неизменяемый список, заменяется целиком
+    private final Map<String, Map<String, Report>> cache; // файл сегмента -> жалобы, в порядке обращения
+    private final List<String> retired; // файлы заменённых сегментов, удаляются на следующем проходе
+    private final Map<UUID, int[]> reporterTotals; // UUID отправителя -> [одобрено, отклонено] по всем сегментам
+    private final AtomicIntegerArray statusTotals; // [одобрено, отклонено] по всем сегментам
+    private volatile boolean manifestDirty; // есть снятые с учёта жалобы, ещё не записанные в манифест
+
+    /**
+     * Описание сегмента в manifest.json
+     */
+    private static class Segment {
+        String file;
+        String month;
+        int count;
+        long minCreatedAt;
+        long maxCreatedAt;
+        int[] statusCounts; // [одобрено, отклонено]
+        Map<String, int[]> reporters; // UUID отправителя -> [одобрено, отклонено]
+        Integer foreign; // жалоб с нестандартными ID; null - сегмент старой версии, неизвестно
+        Set<String> removed; // ID жалоб, вернувшихся в оперативный набор (в счётчиках уже не учтены)
+    }
+
+    private static class Manifest {
+        List<Segment> segments = new ArrayList<>();
+    }
+
+    public ReportArchive(File directory, Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.manifestFile = new SnapshotFile(new File(directory, "manifest.json"), 2, logger);
+        this.segments = List.of();
+        this.cache = new LinkedHashMap<>(CACHED_SEGMENTS * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Report>> eldest) {
+                return size() > CACHED_SEGMENTS;
+            }
+        };
+        this.retired = new ArrayList<>();
+        this.reporterTotals = new ConcurrentHashMap<>();
+        this.statusTotals = new AtomicIntegerArray(2);
+    }
+
+    public void load() {
+        if (!manifestFile.exists()) {
+            return;
+        }
+
+        try {
+            Manifest manifest = manifestFile.read(input ->
+                    gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), Manifest.class));
+            if (manifest != null && manifest.segments != null) {
+                for (Segment segment : manifest.segments) {
+                    segment.removed = concurrentSet(segment.removed);
+                    addTotals(segment, 1);
+                }
+                segments = List.copyOf(manifest.segments);
+            }
+            deleteUnreferenced();
+            logger.info("Архив: сегментов " + segments.size() + ", жалоб " + getTotalCount());
+        } catch (IOException e) {
+            logger.severe("Ошибка загрузки манифеста архива: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Дописывает жалобы в сегменты их месяцев создания и обновляет манифест.
+     * Вызывается только из потока записи.
+     */
+    public synchronized void archive(Collection<Report> reports) throws IOException {
+        // Манифест, ссылающийся на новые файлы, уже записан - старые больше никто не откроет
+        for (String fileName : retired) {
+            deleteSegmentFile(fileName);
+        }
+        retired.clear();
+
+        SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM");
+        Map<String, List<Report>> byMonth = new TreeMap<>();
+        for (Report report : reports) {
+            byMonth.computeIfAbsent(monthFormat.format(report.getCreatedAt()), k -> new ArrayList<>()).add(report);
+        }
+
+        List<Segment> replaced = new ArrayList<>();
+        List<Segment> written = new ArrayList<>();
+        for (Map.Entry<String, List<Report>> entry : byMonth.entrySet()) {
+            String month = entry.getKey();
+            List<Segment> existing = segments.stream().filter(segment -> segment.month.equals(month)).toList();
+
+            Map<String, Report> merged = new LinkedHashMap<>();
+            Set<String> removed = new HashSet<>();
+            try {
+                for (Segment segment : existing) {
+                    merge(segment, merged, removed);
+                }
+            } catch (IOException e) {
+                // Сегмент месяца не читается - не теряем его, новые жалобы пишем рядом
+                logger.severe("Ошибка чтения сегмента архива за " + month + ", жалобы записаны в отдельный сегмент: "
+                        + e.getMessage());
+                existing = List.of();
+                merged.clear();
+                removed.clear();
+            }
+
+            for (Report report : entry.getValue()) {
+                merged.put(report.getId(), report);
+                removed.remove(report.getId());
+            }
+            written.add(writeSegment(month, merged.values(), removed));
+            replaced.addAll(existing);
+        }
+
+        List<Segment> updated = new ArrayList<>(segments);
+        updated.removeAll(replaced);
+        updated.addAll(written);
+        writeManifest(updated);
+
+        // Публикуем сегменты только после записи манифеста
+        replaced.forEach(segment -> addTotals(segment, -1));
+        written.forEach(segment -> addTotals(segment, 1));
+        segments = List.copyOf(updated);
+        synchronized (cache) {
+            for (Segment segment : replaced) {
+                cache.remove(segment.file);
+                retired.add(segment.file);
+            }
+        }
+    }
+
+    /**
+     * Добавляет содержимое сегмента в объединяемый. Снятые с учёта жалобы отбрасываются, если это
+     * уже записано в манифест (их оперативная версия сохранена), иначе переносятся вместе с отметкой.
+     */
+    private void merge(Segment segment, Map<String, Report> merged, Set<String> removed) throws IOException {
+        Map<String, Report> reports = readSegment(segment);
+        for (Report report : reports.values()) {
+            String reportId = report.getId();
+            if (!segment.removed.contains(reportId)) {
+                // Более поздний сегмент содержит более свежую версию
+                merged.put(reportId, report);
+                removed.remove(reportId);
+            } else if (manifestDirty) {
+                merged.putIfAbsent(reportId, report);
+                removed.add(reportId);
+            }
+        }
+    }
+
+    /**
+     * Снимает с учёта архивную копию жалобы, вернувшейся в оперативный набор (например, после
+     * нового комментария). Счётчики уменьшаются сразу, манифест записывается в saveRemovals -
+     * после того, как оперативная версия попадёт в хранилище.
+     *
+     * @return true, если жалоба была в архиве
+     */
+    public synchronized boolean remove(String reportId) {
+        boolean removed = false;
+        // Все копии: до исправления учёта одна жалоба могла попасть в архив несколько раз
+        for (Segment segment : candidates(ReportIds.toKey(reportId))) {
+            Report archived = loadSegment(segment).get(reportId);
+            if (archived == null || !segment.removed.add(reportId)) {
+                continue;
+            }
+
+            int statusIndex = statusIndex(archived);
+            String reporter = archived.getReporterUUID().toString();
+            segment.count--;
+            segment.statusCounts[statusIndex]--;
+            int[] segmentCounts = segment.reporters.get(reporter);
+            if (segmentCounts != null) {
+                segmentCounts[statusIndex]--;
+            }
+
+            statusTotals.decrementAndGet(statusIndex);
+            reporterTotals.computeIfPresent(archived.getReporterUUID(), (uuid, counts) -> {
+                counts[statusIndex]--;
+                return counts[APPROVED] + counts[REJECTED] > 0 ? counts : null;
+            });
+            removed = true;
+        }
+
+        if (removed) {
+            manifestDirty = true;
+        }
+        return removed;
+    }
+
+    /**
+     * Записывает в манифест снятые с учёта жалобы (вызывается из потока записи после сохранения жалоб)
+     */
+    public synchronized void saveRemovals() throws IOException {
+        if (!manifestDirty) {
+            return;
+        }
+        writeManifest(segments);
+        manifestDirty = false;
+    }
+
+    private void writeManifest(List<Segment> list) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.segments = list;
+        manifestFile.write(output -> {
+            Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+            gson.toJson(manifest, writer);
+            writer.flush();
+        });
+    }
+
+    private Segment writeSegment(String month, Collection<Report> reports, Set<String> removed) throws IOException {
+        // Следующий номер после всех файлов месяца, в том числе ещё не удалённых заменённых
+        int sequence = 1;
+        for (Segment segment : segments) {
+            if (segment.month.equals(month)) {
+                sequence = Math.max(sequence, sequenceOf(segment.file) + 1);
+            }
+        }
+        for (String fileName : retired) {
+            if (fileName.startsWith(month + "-")) {
+                sequence = Math.max(sequence, sequenceOf(fileName) + 1);
+            }
+        }
+
+        String fileName = month + "-" + sequence + ".dat.gz";
+        SnapshotFile file = new SnapshotFile(new File(directory, fileName), 1, logger);
+        file.write(output -> {
+            GZIPOutputStream gzip = new GZIPOutputStream(output);
+            BinaryReportCodec.write(reports, gzip);
+            gzip.finish();
+        });
+
+        Segment segment = new Segment();
+        segment.file = fileName;
+        segment.month = month;
+        segment.count = reports.size() - removed.size();
+        segment.minCreatedAt = Long.MAX_VALUE;
+        segment.maxCreatedAt = Long.MIN_VALUE;
+        segment.statusCounts = new int[2];
+        segment.reporters = new HashMap<>();
+        segment.foreign = 0;
+        segment.removed = concurrentSet(removed);
+
+        for (Report report : reports) {
+            long createdAt = report.getCreatedAtMillis();
+            segment.minCreatedAt = Math.min(segment.minCreatedAt, createdAt);
+            segment.maxCreatedAt = Math.max(segment.maxCreatedAt, createdAt);
+            if (ReportIds.createdAtOf(report.getKey()) == ReportIds.UNKNOWN_TIME) {
+                segment.foreign++;
+            }
+
+            if (removed.contains(report.getId())) {
+                continue;
+            }
+            int statusIndex = statusIndex(report);
+            segment.statusCounts[statusIndex]++;
+            segment.reporters.computeIfAbsent(report.getReporterUUID().toString(), k -> new int[2])[statusIndex]++;
+        }
+
+        return segment;
+    }
+
+    private static int sequenceOf(String fileName) {
+        String name = fileName.substring(0, fileName.length() - ".dat.gz".length());
+        try {
+            return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Удаляет файлы сегментов, на которые не ссылается манифест: заменённые до перезапуска
+     * или записанные перед сбоем, до обновления манифеста
+     */
+    private void deleteUnreferenced() {
+        Set<String> referenced = new HashSet<>();
+        for (Segment segment : segments) {
+            referenced.add(segment.file);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".dat.gz") || name.endsWith(".dat.gz.tmp"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!referenced.contains(file.getName())) {
+                deleteSegmentFile(file.getName());
+            }
+        }
+    }
+
+    private void deleteSegmentFile(String fileName) {
+        File file = new File(directory, fileName);
+        if (file.exists() && !file.delete()) {
+            logger.warning("Не удалось удалить старый сегмент архива " + fileName);
+        }
+    }
+
+    /**
+     * Архивные жалобы игрока. Загружаются только сегменты, в которых он есть.
+     */
+    public List<Report> findByReporter(UUID reporterUUID) {
+        String key = reporterUUID.toString();
+        Map<String, Report> result = new LinkedHashMap<>();
+
+        for (Segment segment : segments) {
+            if (!segment.reporters.containsKey(key)) {
+                continue;
+            }
+            for (Report report : loadSegment(segment).values()) {
+                if (report.isReporter(reporterUUID) && !segment.removed.contains(report.getId())) {
+                    // Более поздний сегмент содержит более свежую версию
+                    result.put(report.getId(), report);
+                }
+            }
+        }
+
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Поиск архивной жалобы по ID. Загружаются только сегменты, в диапазон дат которых попадает
+     * время из ключа жалобы, - неизвестный ID обычно не открывает ни одного сегмента.
+     */
+    public Report find(String reportId) {
+        List<Segment> candidates = candidates(ReportIds.toKey(reportId));
+        // Более поздний сегмент содержит более свежую версию
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            Segment segment = candidates.get(i);
+            if (segment.removed.contains(reportId)) {
+                continue;
+            }
+            Report report = loadSegment(segment).get(reportId);
+            if (report != null) {
+                return report;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Сегменты, в которых может быть жалоба с этим ключом
+     */
+    private List<Segment> candidates(long key) {
+        long createdAt = ReportIds.createdAtOf(key);
+        List<Segment> result = new ArrayList<>();
+        for (Segment segment : segments) {
+            boolean matches = createdAt == ReportIds.UNKNOWN_TIME
+                    ? segment.foreign == null || segment.foreign > 0
+                    : createdAt >= segment.minCreatedAt - KEY_TIME_SLACK
+                    && createdAt <= segment.maxCreatedAt + KEY_TIME_SLACK;
+            if (matches) {
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Количество архивных жалоб игрока с указанным статусом (null - с любым) без загрузки сегментов
+     */
+    public int countByReporter(UUID reporterUUID, Report.ReportStatus status) {
+        int[] counts = reporterTotals.get(reporterUUID);
+        if (counts == null) {
+            return 0;
+        }
+        if (status == null) {
+            return counts[APPROVED] + counts[REJECTED];
+        }
+
+        switch (status) {
+            case APPROVED:
+                return counts[APPROVED];
+            case REJECTED:
+                return counts[REJECTED];
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Общее количество архивных жалоб с указанным статусом
+     */
+    public int countByStatus(Report.ReportStatus status) {
+        switch (status) {
+            case APPROVED:
+                return statusTotals.get(APPROVED);
+            case REJECTED:
+                return statusTotals.get(REJECTED);
+            default:
+                return 0;
+        }
+    }
+
+    public int getTotalCount() {
+        return statusTotals.get(APPROVED) + statusTotals.get(REJECTED);
+    }
+
+    private static int statusIndex(Report report) {
+        return report.getStatus() == Report.ReportStatus.APPROVED ? APPROVED : REJECTED;
+    }
+
+    private static Set<String> concurrentSet(Set<String> values) {
+        Set<String> set = ConcurrentHashMap.newKeySet();
+        if (values != null) {
+            set.addAll(values);
+        }
+        return set;
+    }
+
+    /**
+     * Добавляет (sign = 1) или вычитает (sign = -1) счётчики сегмента из общих
+     */
+    private void addTotals(Segment segment, int sign) {
+        statusTotals.addAndGet(APPROVED, sign * segment.statusCounts[APPROVED]);
+        statusTotals.addAndGet(REJECTED, sign * segment.statusCounts[REJECTED]);
+        for (Map.Entry<String, int[]> entry : segment.reporters.entrySet()) {
+            int[] added = {sign * entry.getValue()[APPROVED], sign * entry.getValue()[REJECTED]};
+            if (added[APPROVED] == 0 && added[REJECTED] == 0) {
+                continue;
+            }
+            reporterTotals.merge(UUID.fromString(entry.getKey()), added, (current, delta) -> {
+                current[APPROVED] += delta[APPROVED];
+                current[REJECTED] += delta[REJECTED];
+                return current[APPROVED] + current[REJECTED] > 0 ? current : null;
+            });
+        }
+    }
+
+    /**
+     * Жалобы сегмента из кэша или с диска. При ошибке чтения возвращается пустой набор,
+     * который не кэшируется - следующее обращение попробует прочитать сегмент снова.
+     */
+    private Map<String, Report> loadSegment(Segment segment) {
+        synchronized (cache) {
+            Map<String, Report> cached = cache.get(segment.file);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Map<String, Report> reports;
+        try {
+            reports = readSegment(segment);
+        } catch (IOException e) {
+            logger.severe("Ошибка чтения сегмента архива " + segment.file + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+
+        synchronized (cache) {
+            cache.put(segment.file, reports);
+        }
+        return reports;
+    }
+
+    private Map<String, Report> readSegment(Segment segment) throws IOException {
+        SnapshotFile file = new SnapshotFile(new File(directory, segment.file), 1, logger);
+        Map<String, Report> reports = file.read(input -> BinaryReportCodec.read(new GZIPInputStream(input)));
+        if (reports == null) {
+            throw new FileNotFoundException(segment.file);
+        }
+        return Collections.unmodifiableMap(reports);
+    }
+}
@@ -0,0 +1,68 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный по размеру LRU-кэш тел жалоб для режима storage.lazy-load.
+ * При переполнении вытесняется жалоба, к которой дольше всего не обращались.
+ */
+public class ReportCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Long, Report> entries;
+    private long hits;
+    private long misses;
+
+    public ReportCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Report> eldest) {
+                return size() > ReportCache.this.capacity;
+            }
+        };
+    }
+
+    public synchronized Report get(long key) {
+        Report report = entries.get(key);
+        if (report != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return report;
+    }
+
+    /**
+     * Кладёт актуальную версию жалобы (после изменения или записи на диск)
+     */
+    public synchronized void put(Report report) {
+        entries.put(report.getKey(), report);
+    }
+
+    /**
+     * Кладёт загруженную с диска жалобу, не перетирая уже закэшированную версию
+     */
+    public synchronized void putIfAbsent(Report report) {
+        entries.putIfAbsent(report.getKey(), report);
+    }
+
+    public synchronized void remove(long key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Доля обращений, обслуженных из кэша (0..1)
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,177 @@
+package com.reportsystem.data;
+
+import com.reportsystem.utils.ReportIds;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * Выдаёт уникальные 64-битные ключи жалоб: 41 бит времени (мс от 2024-01-01),
+ * 10 бит номера сервера и 12 бит последовательности внутри миллисекунды.
+ * На диск записывается "аренда" времени вперёд: после перезапуска (даже если часы ушли назад)
+ * новые ключи всегда больше выданных ранее. При остановке аренда сокращается до последнего
+ * выданного ключа, поэтому после обычного перезапуска время в ключах не опережает часы;
+ * опережение до длины аренды остаётся только после сбоя.
+ */
+public class ReportIdAllocator {
+
+    private static final long EPOCH = ReportIds.EPOCH;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final int SEQUENCE_MASK = (1 << SEQUENCE_BITS) - 1;
+    private static final long LEASE_MILLIS = 60_000;
+
+    private final SnapshotFile stateFile;
+    private final int nodeId;
+    private final Logger logger;
+    private final Executor renewer;
+    private final Object persistLock = new Object();
+    private long persistedLease; // под persistLock
+    private long lastTimestamp;
+    private int sequence;
+    private long leasedUntil;
+    private boolean renewing;
+
+    /**
+     * @param renewer поток, в котором аренда продлевается заранее (поток записи данных)
+     */
+    public ReportIdAllocator(File file, int nodeId, Logger logger, Executor renewer) {
+        this.stateFile = new SnapshotFile(file, 1, logger);
+        this.logger = logger;
+        this.renewer = renewer;
+
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            logger.warning("Неверный storage.node-id " + nodeId + " (допустимо 0-" + MAX_NODE + "), используется 0");
+            nodeId = 0;
+        }
+        this.nodeId = nodeId;
+
+        this.leasedUntil = readLease();
+        this.persistedLease = leasedUntil;
+        // Ключи до границы аренды могли быть выданы; после остановки граница - последний выданный ключ
+        this.lastTimestamp = leasedUntil;
+
+        // Продлеваем сразу, чтобы первая жалоба после запуска не ждала записи на диск
+        this.renewing = true;
+        scheduleRenewal();
+    }
+
+    /**
+     * Следующий ключ жалобы (строго возрастающий для этого сервера).
+     * Аренда продлевается в фоне, когда истекла её половина; вызывающий поток ждёт записи на диск,
+     * только если аренда всё-таки закончилась.
+     */
+    public long next() {
+        long key;
+        boolean renew = false;
+        synchronized (this) {
+            long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+
+            if (timestamp == lastTimestamp) {
+                sequence = (sequence + 1) & SEQUENCE_MASK;
+                if (sequence == 0) {
+                    timestamp++; // последовательность исчерпана - занимаем следующую миллисекунду
+                }
+            } else {
+                sequence = 0;
+            }
+            lastTimestamp = timestamp;
+
+            if (timestamp >= leasedUntil) {
+                leasedUntil = Math.max(leasedUntil, persistLease(timestamp + LEASE_MILLIS));
+            } else if (!renewing && timestamp >= leasedUntil - LEASE_MILLIS / 2) {
+                renewing = true;
+                renew = true;
+            }
+
+            key = ((timestamp - EPOCH) << ReportIds.TIME_SHIFT)
+                    | ((long) nodeId << SEQUENCE_BITS)
+                    | sequence;
+        }
+
+        if (renew) {
+            scheduleRenewal();
+        }
+        return key;
+    }
+
+    /**
+     * Записывает вместо аренды время последнего выданного ключа (при остановке, в потоке записи).
+     * Следующий вызов next() снова продлит аренду синхронно.
+     */
+    public synchronized void close() {
+        synchronized (persistLock) {
+            long issuedUntil = lastTimestamp + 1;
+            writeLease(issuedUntil);
+            persistedLease = issuedUntil;
+            leasedUntil = issuedUntil;
+        }
+    }
+
+    private void scheduleRenewal() {
+        try {
+            renewer.execute(this::renew);
+        } catch (RejectedExecutionException e) {
+            // Поток записи уже остановлен - следующий next() продлит аренду сам, когда она истечёт
+            synchronized (this) {
+                renewing = false;
+            }
+        }
+    }
+
+    private void renew() {
+        long from;
+        synchronized (this) {
+            from = Math.max(System.currentTimeMillis(), lastTimestamp);
+        }
+        long lease = persistLease(from + LEASE_MILLIS);
+        synchronized (this) {
+            leasedUntil = Math.max(leasedUntil, lease);
+            renewing = false;
+        }
+    }
+
+    /**
+     * Записывает аренду до lease, если она дальше уже записанной
+     *
+     * @return записанная граница аренды
+     */
+    private long persistLease(long lease) {
+        synchronized (persistLock) {
+            if (lease > persistedLease) {
+                writeLease(lease);
+                persistedLease = lease;
+            }
+            return persistedLease;
+        }
+    }
+
+    private long readLease() {
+        if (!stateFile.exists()) {
+            return 0;
+        }
+
+        try {
+            Long lease = stateFile.read(input -> {
+                String text = new String(input.readAllBytes(), StandardCharsets.UTF_8).trim();
+                return Long.parseLong(text);
+            });
+            return lease != null ? lease : 0;
+        } catch (IOException | NumberFormatException e) {
+            logger.severe("Ошибка чтения состояния генератора ID: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void writeLease(long lease) {
+        try {
+            stateFile.write(output -> output.write(Long.toString(lease).getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            logger.severe("Ошибка записи состояния генератора ID: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Вторичные индексы жалоб: по нарушителю (UUID и ник), по статусу и по дате создания.
+ * Жалобы каждого отправителя хранятся отдельно в PlayerReportIndex.
+ * Все изменения выполняются под одной блокировкой, поэтому смена статуса
+ * переносит жалобу между множествами атомарно.
+ */
+public class ReportIndex {
+
+    // Жалобы на нарушителя упорядочены по дате создания, чтобы страница читалась без сортировки
+    private final Map<UUID, NavigableSet<ReportKey>> byViolator = new HashMap<>();
+    private final Map<String, NavigableSet<ReportKey>> byViolatorName = new HashMap<>();
+    private final Map<Report.ReportStatus, Set<Long>> byStatus = new EnumMap<>(Report.ReportStatus.class);
+    private final NavigableSet<ReportKey> byCreatedAt = new TreeSet<>();
+    private final Map<Long, Entry> entries = new HashMap<>(); // ключ жалобы -> статус и дата создания в индексе
+
+    private static final class Entry {
+        final ReportKey sortKey; // общий для byCreatedAt и множеств нарушителя
+        Report.ReportStatus status;
+
+        Entry(ReportKey sortKey, Report.ReportStatus status) {
+            this.sortKey = sortKey;
+            this.status = status;
+        }
+    }
+
+    public ReportIndex() {
+        for (Report.ReportStatus status : Report.ReportStatus.values()) {
+            byStatus.put(status, new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Добавляет жалобу или обновляет её статус, если она уже проиндексирована
+     *
+     * @return статус до обновления или null для новой жалобы
+     */
+    public synchronized Report.ReportStatus update(Report report) {
+        long key = report.getKey();
+        Report.ReportStatus status = report.getStatus();
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            Report.ReportStatus previous = entry.status;
+            if (previous != status) {
+                byStatus.get(previous).remove(key);
+                byStatus.get(status).add(key);
+                entry.status = status;
+            }
+            return previous;
+        }
+
+        ReportKey sortKey = ReportKey.of(report);
+        entries.put(key, new Entry(sortKey, status));
+        byStatus.get(status).add(key);
+        byCreatedAt.add(sortKey);
+
+        UUID violatorUUID = report.getViolatorUUID();
+        if (violatorUUID != null) {
+            byViolator.computeIfAbsent(violatorUUID, k -> new TreeSet<>()).add(sortKey);
+        }
+        String violatorName = normalizeName(report.getViolatorName());
+        if (violatorName != null) {
+            byViolatorName.computeIfAbsent(violatorName, k -> new TreeSet<>()).add(sortKey);
+        }
+        return null;
+    }
+
+    public synchronized void remove(Report report) {
+        long key = report.getKey();
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+
+        byStatus.get(entry.status).remove(key);
+        byCreatedAt.remove(entry.sortKey);
+
+        UUID violatorUUID = report.getViolatorUUID();
+        if (violatorUUID != null) {
+            removeFrom(byViolator, violatorUUID, entry.sortKey);
+        }
+        String violatorName = normalizeName(report.getViolatorName());
+        if (violatorName != null) {
+            removeFrom(byViolatorName, violatorName, entry.sortKey);
+        }
+    }
+
+    /**
+     * Следующие limit ключей запроса по всем жалобам после курсора. С фильтром по нарушителю
+     * обходится упорядоченное множество его жалоб, а не все жалобы по дате.
+     *
+     * @param after курсор (не включается) или null для начала
+     */
+    synchronized List<ReportKey> scan(ReportQuery query, ReportKey after, boolean descending, int limit) {
+        Predicate<ReportKey> filter = key -> matches(key.key, query);
+        NavigableSet<ReportKey> violatorKeys = violatorKeys(query);
+        return scan(violatorKeys != null ? violatorKeys : byCreatedAt, after, descending, limit, filter);
+    }
+
+    /**
+     * Наименьшее множество жалоб на нарушителя из запроса или null, если нарушитель не указан
+     */
+    private NavigableSet<ReportKey> violatorKeys(ReportQuery query) {
+        NavigableSet<ReportKey> result = null;
+        if (query.getViolatorUUID() != null) {
+            result = byViolator.getOrDefault(query.getViolatorUUID(), Collections.emptyNavigableSet());
+        }
+        String violatorName = normalizeName(query.getViolatorName());
+        if (violatorName != null) {
+            NavigableSet<ReportKey> byName = byViolatorName.getOrDefault(violatorName, Collections.emptyNavigableSet());
+            if (result == null || byName.size() < result.size()) {
+                result = byName;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Обходит только нужный участок упорядоченного множества (вызывать под блокировкой владельца)
+     */
+    static List<ReportKey> scan(NavigableSet<ReportKey> keys, ReportKey after, boolean descending,
+                                int limit, Predicate<ReportKey> filter) {
+        NavigableSet<ReportKey> view;
+        if (descending) {
+            view = after != null ? keys.headSet(after, false).descendingSet() : keys.descendingSet();
+        } else {
+            view = after != null ? keys.tailSet(after, false) : keys;
+        }
+
+        List<ReportKey> result = new ArrayList<>(Math.min(limit, 64));
+        for (ReportKey key : view) {
+            if (filter.test(key)) {
+                result.add(key);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public synchronized boolean contains(long key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Проверяет фильтры запроса (статус, нарушитель) только по индексу, не обращаясь к телу жалобы
+     */
+    synchronized boolean matches(long key, ReportQuery query) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        if (query.getStatus() != null && entry.status != query.getStatus()) {
+            return false;
+        }
+        if (query.getViolatorUUID() != null
+                && !byViolator.getOrDefault(query.getViolatorUUID(), Collections.emptyNavigableSet()).contains(entry.sortKey)) {
+            return false;
+        }
+        String violatorName = normalizeName(query.getViolatorName());
+        return violatorName == null
+                || byViolatorName.getOrDefault(violatorName, Collections.emptyNavigableSet()).contains(entry.sortKey);
+    }
+
+    /**
+     * До limit самых новых жалоб из переданных ключей, от новых к старым
+     */
+    public synchronized List<Long> newest(Collection<Long> keys, int limit) {
+        PriorityQueue<ReportKey> top = new PriorityQueue<>();
+        for (Long key : keys) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                continue;
+            }
+            top.add(entry.sortKey);
+            if (top.size() > limit) {
+                top.poll(); // отбрасываем самую старую
+            }
+        }
+
+        List<ReportKey> ordered = new ArrayList<>(top);
+        ordered.sort(Comparator.reverseOrder());
+        List<Long> result = new ArrayList<>(ordered.size());
+        for (ReportKey key : ordered) {
+            result.add(key.key);
+        }
+        return result;
+    }
+
+    public synchronized int countByStatus(Report.ReportStatus status) {
+        return byStatus.get(status).size();
+    }
+
+    private static <K, V> void removeFrom(Map<K, ? extends Set<V>> index, K key, V value) {
+        Set<V> values = index.get(key);
+        if (values != null) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static String normalizeName(String name) {
+        return name != null ? name.toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,190 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Журнал изменений жалоб (append-only).
+ * Каждое изменение дописывается одной строкой JSON, fsync выполняется группами.
+ * При компактизации журнал сворачивается в снапшот reports.json и обнуляется.
+ */
+public class ReportJournal {
+
+    private static final String OP_PUT = "put";
+
+    private final File file;
+    private final Gson gson;
+    private final Logger logger;
+
+    private FileOutputStream output;
+    private FileChannel channel;
+    private Writer writer;
+    private int entries;
+    private boolean dirty;
+
+    public ReportJournal(File file, Gson gson, Logger logger) {
+        this.file = file;
+        this.gson = gson;
+        this.logger = logger;
+    }
+
+    /**
+     * Проигрывает журнал поверх загруженного снапшота.
+     * Обрезанная последняя строка (падение во время записи) пропускается.
+     */
+    public synchronized int replay(Map<String, Report> reports) throws IOException {
+        entries = 0;
+        if (!file.exists()) {
+            return 0;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    applyRecord(line, reports);
+                    entries++;
+                } catch (JsonParseException | IllegalStateException | IOException e) {
+                    logger.warning("Пропущена повреждённая запись журнала (строка " + lineNumber + "): " + e.getMessage());
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    private void applyRecord(String line, Map<String, Report> reports) throws IOException {
+        String op = null;
+        Report report = null;
+
+        JsonReader reader = new JsonReader(new StringReader(line));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "op":
+                    op = reader.nextString();
+                    break;
+                case "report":
+                    report = gson.fromJson(reader, Report.class);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (OP_PUT.equals(op) && report != null) {
+            reports.put(report.getId(), report);
+        }
+    }
+
+    /**
+     * Дописывает изменённую жалобу в журнал. Данные попадают в ОС сразу,
+     * а на диск - при следующем {@link #sync()}.
+     */
+    public synchronized void append(Report report) throws IOException {
+        String json = gson.toJson(report, Report.class);
+
+        ensureOpen();
+        writer.write("{\"op\":\"" + OP_PUT + "\",\"report\":");
+        writer.write(json);
+        writer.write("}\n");
+        writer.flush();
+        entries++;
+        dirty = true;
+    }
+
+    /**
+     * Групповой fsync всех записей, добавленных с прошлого вызова.
+     * Выполняется под блокировкой журнала: reset, archive и close не закроют канал во время fsync.
+     */
+    public synchronized void sync() throws IOException {
+        if (!dirty || channel == null) {
+            return;
+        }
+        channel.force(false);
+        // Сбрасывается только после успешного fsync, иначе следующий вызов повторит его
+        dirty = false;
+    }
+
+    /**
+     * Обнуляет журнал после того, как его содержимое попало в снапшот.
+     */
+    public synchronized void reset() throws IOException {
+        closeQuietly();
+        try (FileOutputStream truncate = new FileOutputStream(file, false)) {
+            truncate.getChannel().force(true);
+        }
+        entries = 0;
+        dirty = false;
+    }
+
+    /**
+     * Закрывает журнал и переименовывает файл, добавляя суффикс
+     */
+    public synchronized void archive(String suffix) throws IOException {
+        close();
+        if (file.exists()) {
+            Files.move(file.toPath(), new File(file.getParentFile(), file.getName() + "." + suffix).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        entries = 0;
+    }
+
+    public synchronized int getEntries() {
+        return entries;
+    }
+
+    public synchronized void close() {
+        try {
+            if (dirty && channel != null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            logger.warning("Ошибка синхронизации журнала: " + e.getMessage());
+        }
+        closeQuietly();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (writer != null) {
+            return;
+        }
+        file.getParentFile().mkdirs();
+        output = new FileOutputStream(file, true);
+        channel = output.getChannel();
+        writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+
+    private void closeQuietly() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException ignored) {
+            // Поток уже закрыт
+        }
+        writer = null;
+        channel = null;
+        output = null;
+        dirty = false;
+    }
+}
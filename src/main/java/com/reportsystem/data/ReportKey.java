@@ -0,0 +1,69 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Ключ упорядочивания жалоб по дате создания (ключ жалобы различает жалобы с одинаковым временем).
+ * Также служит курсором постраничных запросов.
+ */
+public final class ReportKey implements Comparable<ReportKey> {
+
+    final long createdAt;
+    final long key;
+
+    ReportKey(long createdAt, long key) {
+        this.createdAt = createdAt;
+        this.key = key;
+    }
+
+    static ReportKey of(Report report) {
+        return new ReportKey(report.getCreatedAtMillis(), report.getKey());
+    }
+
+    @Override
+    public int compareTo(ReportKey other) {
+        int result = Long.compare(createdAt, other.createdAt);
+        return result != 0 ? result : Long.compare(key, other.key);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ReportKey && compareTo((ReportKey) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(createdAt) * 31 + Long.hashCode(key);
+    }
+
+    /**
+     * Непрозрачный курсор для передачи клиенту
+     */
+    String encode() {
+        String raw = createdAt + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return ключ или null, если курсор пустой или повреждён
+     */
+    static ReportKey decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator <= 0) {
+                return null;
+            }
+            return new ReportKey(Long.parseLong(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
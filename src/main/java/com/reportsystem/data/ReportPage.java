@@ -0,0 +1,44 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.util.List;
+
+/**
+ * Страница результатов ReportQuery
+ */
+public class ReportPage {
+
+    private final List<Report> reports;
+    private final String nextCursor;
+    private final int total;
+
+    ReportPage(List<Report> reports, String nextCursor, int total) {
+        this.reports = reports;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    /**
+     * Курсор следующей страницы или null, если это последняя страница
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Общее количество подходящих жалоб или -1, если его нельзя получить без полного обхода
+     * (фильтр по нарушителю)
+     */
+    public int getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,113 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.util.UUID;
+
+/**
+ * Параметры постраничного запроса жалоб для DataManager.queryReports.
+ * Без отправителя запрос выполняется по всем жалобам в оперативном наборе (без архива).
+ */
+public class ReportQuery {
+
+    public enum Order {
+        NEWEST_FIRST,
+        OLDEST_FIRST
+    }
+
+    private UUID reporterUUID;
+    private Report.ReportStatus status;
+    private UUID violatorUUID;
+    private String violatorName;
+    private int pageSize = 18;
+    private String cursor;
+    private Order order = Order.NEWEST_FIRST;
+
+    public static ReportQuery byReporter(UUID reporterUUID) {
+        ReportQuery query = new ReportQuery();
+        query.reporterUUID = reporterUUID;
+        return query;
+    }
+
+    public static ReportQuery all() {
+        return new ReportQuery();
+    }
+
+    public ReportQuery status(Report.ReportStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public ReportQuery violator(UUID violatorUUID) {
+        this.violatorUUID = violatorUUID;
+        return this;
+    }
+
+    public ReportQuery violatorName(String violatorName) {
+        this.violatorName = violatorName;
+        return this;
+    }
+
+    public ReportQuery pageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+        return this;
+    }
+
+    /**
+     * @param cursor значение ReportPage.getNextCursor() предыдущей страницы (null - первая страница)
+     */
+    public ReportQuery after(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public ReportQuery order(Order order) {
+        this.order = order;
+        return this;
+    }
+
+    public UUID getReporterUUID() {
+        return reporterUUID;
+    }
+
+    public Report.ReportStatus getStatus() {
+        return status;
+    }
+
+    public UUID getViolatorUUID() {
+        return violatorUUID;
+    }
+
+    public String getViolatorName() {
+        return violatorName;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Проверка фильтров по статусу и нарушителю
+     */
+    boolean matches(Report report) {
+        if (status != null && report.getStatus() != status) {
+            return false;
+        }
+        if (violatorUUID != null && !violatorUUID.equals(report.getViolatorUUID())) {
+            return false;
+        }
+        return violatorName == null || violatorName.equalsIgnoreCase(report.getViolatorName());
+    }
+
+    boolean hasViolatorFilter() {
+        return violatorUUID != null || violatorName != null;
+    }
+}
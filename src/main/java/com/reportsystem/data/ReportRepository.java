@@ -0,0 +1,74 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище жалоб, которому DataManager делегирует работу с диском.
+ * Методы записи вызываются только из потока записи (AsyncReportWriter).
+ */
+public interface ReportRepository {
+
+    /**
+     * Название хранилища для логов
+     */
+    String getName();
+
+    /**
+     * Есть ли в хранилище сохранённые данные
+     */
+    boolean exists();
+
+    /**
+     * Загружает все жалобы
+     */
+    Map<String, Report> loadAll() throws IOException;
+
+    /**
+     * Передаёт все жалобы по одной, не удерживая их в памяти одновременно
+     */
+    default void forEach(Consumer<Report> action) throws IOException {
+        loadAll().values().forEach(action);
+    }
+
+    /**
+     * Сохраняет изменённые жалобы
+     *
+     * @param changed изменённые жалобы
+     * @param all     текущее состояние всех жалоб (для хранилищ, которые пишут снапшоты)
+     */
+    void save(Collection<Report> changed, Collection<Report> all) throws IOException;
+
+    /**
+     * Удаляет жалобы из хранилища (после переноса в архив)
+     *
+     * @param all текущее состояние всех жалоб, уже без удалённых
+     */
+    void delete(Collection<String> reportIds, Collection<Report> all) throws IOException;
+
+    /**
+     * Полная фиксация состояния (снапшот и обнуление журнала для файловых хранилищ)
+     */
+    default void checkpoint(Collection<Report> all) throws IOException {
+    }
+
+    /**
+     * Записывает все жалобы при импорте из другого хранилища
+     */
+    default void importAll(Collection<Report> reports) throws IOException {
+        save(reports, reports);
+        checkpoint(reports);
+    }
+
+    /**
+     * Переименовывает данные хранилища после импорта в другое хранилище
+     */
+    default void retire() throws IOException {
+    }
+
+    void close();
+}
@@ -0,0 +1,139 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.util.*;
+
+/**
+ * Полнотекстовый индекс по причине, комментарию и комментарию администратора.
+ * Текст разбивается на слова из букв и цифр (латиница и кириллица), приводится
+ * к нижнему регистру, ё заменяется на е. Поиск возвращает жалобы, содержащие все слова запроса.
+ * Каждое слово хранится в куче один раз: жалоба ссылается на общие списки своих слов.
+ */
+public class ReportSearchIndex {
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private final Map<String, Posting> postings = new HashMap<>(); // слово -> ключи жалоб
+    private final Map<Long, Posting[]> documents = new HashMap<>(); // ключ жалобы -> списки её слов
+
+    private static final class Posting {
+        final String token;
+        final Set<Long> keys = new HashSet<>();
+
+        Posting(String token) {
+            this.token = token;
+        }
+    }
+
+    /**
+     * Переиндексирует жалобу (текст мог измениться, например комментарий администратора)
+     */
+    public synchronized void update(Report report) {
+        long key = report.getKey();
+        Set<String> tokens = new HashSet<>();
+        tokenize(report.getReason(), tokens);
+        tokenize(report.getComment(), tokens);
+        tokenize(report.getAdminComment(), tokens);
+
+        Posting[] previous = documents.get(key);
+        if (previous != null) {
+            for (Posting posting : previous) {
+                if (!tokens.contains(posting.token)) {
+                    removePosting(posting, key);
+                }
+            }
+        }
+
+        if (tokens.isEmpty()) {
+            documents.remove(key);
+            return;
+        }
+        Posting[] current = new Posting[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            // Строка слова из запроса не сохраняется - жалоба ссылается на уже существующий список
+            Posting posting = postings.computeIfAbsent(token, Posting::new);
+            posting.keys.add(key);
+            current[i++] = posting;
+        }
+        documents.put(key, current);
+    }
+
+    public synchronized void remove(Report report) {
+        Posting[] previous = documents.remove(report.getKey());
+        if (previous != null) {
+            for (Posting posting : previous) {
+                removePosting(posting, report.getKey());
+            }
+        }
+    }
+
+    /**
+     * Ключи жалоб, содержащих все слова запроса
+     */
+    public synchronized List<Long> search(String query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(query, tokens);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Начинаем с самого короткого списка - пересечение не больше него
+        List<Set<Long>> lists = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Posting posting = postings.get(token);
+            if (posting == null) {
+                return new ArrayList<>();
+            }
+            lists.add(posting.keys);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        List<Long> result = new ArrayList<>();
+        outer:
+        for (Long key : lists.get(0)) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(key)) {
+                    continue outer;
+                }
+            }
+            result.add(key);
+        }
+        return result;
+    }
+
+    private void removePosting(Posting posting, long key) {
+        posting.keys.remove(key);
+        if (posting.keys.isEmpty()) {
+            postings.remove(posting.token);
+        }
+    }
+
+    /**
+     * Разбивает текст на слова и добавляет их в tokens
+     */
+    static void tokenize(String text, Collection<String> tokens) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(normalize(c));
+            } else if (token.length() > 0) {
+                if (token.length() >= MIN_TOKEN_LENGTH || Character.isDigit(token.charAt(0))) {
+                    tokens.add(token.toString());
+                }
+                token.setLength(0);
+            }
+        }
+    }
+
+    private static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
@@ -0,0 +1,222 @@
+package com.reportsystem.data;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.logging.Logger;
+
+/**
+ * Атомарная запись снапшота с контрольной суммой и хранением нескольких поколений.
+ * Запись идёт во временный файл, после fsync он переименовывается поверх основного.
+ * В конец файла дописывается строка "#crc32:xxxxxxxx", при загрузке повреждённый
+ * снапшот пропускается и используется самое новое целое поколение.
+ */
+public class SnapshotFile {
+
+    private static final String FOOTER_PREFIX = "\n#crc32:";
+    private static final int FOOTER_LENGTH = FOOTER_PREFIX.length() + 8 + 1;
+
+    private final File file;
+    private final int generations;
+    private final Logger logger;
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream output) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface ContentReader<T> {
+        T read(InputStream input) throws IOException;
+    }
+
+    public SnapshotFile(File file, int generations, Logger logger) {
+        this.file = file;
+        this.generations = Math.max(1, generations);
+        this.logger = logger;
+    }
+
+    /**
+     * Есть ли на диске хотя бы одно поколение снапшота
+     */
+    public boolean exists() {
+        for (int i = 0; i < generations; i++) {
+            if (generation(i).exists()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void write(ContentWriter content) throws IOException {
+        File parent = file.getParentFile();
+        parent.mkdirs();
+        File temp = new File(parent, file.getName() + ".tmp");
+
+        try (FileOutputStream fileOutput = new FileOutputStream(temp)) {
+            CRC32 crc = new CRC32();
+            OutputStream buffered = new BufferedOutputStream(new CheckedOutputStream(fileOutput, crc));
+            content.write(buffered);
+            buffered.flush();
+
+            String footer = FOOTER_PREFIX + String.format("%08x", crc.getValue()) + "\n";
+            fileOutput.write(footer.getBytes(StandardCharsets.US_ASCII));
+            fileOutput.getChannel().force(true);
+        }
+
+        // Сдвигаем старые поколения: reports.json -> reports.json.1 -> reports.json.2 ...
+        for (int i = generations - 1; i > 0; i--) {
+            File from = generation(i - 1);
+            if (from.exists()) {
+                move(from.toPath(), generation(i).toPath());
+            }
+        }
+
+        move(temp.toPath(), file.toPath());
+        syncDirectory(parent);
+    }
+
+    /**
+     * Переименовывает все поколения, добавляя суффикс (например, после миграции формата)
+     */
+    public void archive(String suffix) throws IOException {
+        for (int i = 0; i < generations; i++) {
+            File current = generation(i);
+            if (current.exists()) {
+                move(current.toPath(), new File(current.getParentFile(), current.getName() + "." + suffix).toPath());
+            }
+        }
+    }
+
+    /**
+     * Загружает самое новое поколение с корректной контрольной суммой.
+     * Файлы без контрольной суммы (старый формат) принимаются, если успешно читаются и среди более
+     * старых поколений нет файла с контрольной суммой. Пустой файл всегда считается повреждённым.
+     *
+     * @return содержимое или null, если ни одного снапшота нет
+     */
+    public <T> T read(ContentReader<T> content) throws IOException {
+        IOException lastError = null;
+
+        for (int i = 0; i < generations; i++) {
+            File candidate = generation(i);
+            if (!candidate.exists()) {
+                continue;
+            }
+
+            try {
+                byte[] data = Files.readAllBytes(candidate.toPath());
+                int length = verify(i, data);
+                if (length < 0) {
+                    continue;
+                }
+
+                T result = content.read(new ByteArrayInputStream(data, 0, length));
+                if (i > 0) {
+                    logger.warning("Основной снапшот повреждён, загружено поколение " + candidate.getName());
+                }
+                return result;
+            } catch (IOException | RuntimeException e) {
+                logger.warning("Не удалось прочитать снапшот " + candidate.getName() + ": " + e.getMessage());
+                lastError = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+        }
+
+        if (lastError != null) {
+            throw lastError;
+        }
+        return null;
+    }
+
+    /**
+     * @return длина данных без строки контрольной суммы или -1, если снапшот повреждён
+     */
+    private int verify(int index, byte[] data) {
+        File candidate = generation(index);
+        if (data.length == 0) {
+            // Например, файл, переименованный перед сбоем файловой системы
+            logger.warning("Снапшот " + candidate.getName() + " пуст");
+            return -1;
+        }
+
+        long expected = footerChecksum(data, data.length);
+        if (expected < 0) {
+            // Снапшот старого формата без контрольной суммы. Если более старое поколение уже записано
+            // с суммой, то этот файл новее и тоже должен её содержать - значит, он повреждён
+            for (int i = index + 1; i < generations; i++) {
+                if (hasFooter(generation(i))) {
+                    logger.warning("Снапшот " + candidate.getName() + " без контрольной суммы");
+                    return -1;
+                }
+            }
+            return data.length;
+        }
+
+        int footerStart = data.length - FOOTER_LENGTH;
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, footerStart);
+        if (crc.getValue() != expected) {
+            logger.warning("Контрольная сумма снапшота " + candidate.getName() + " не совпадает");
+            return -1;
+        }
+        return footerStart;
+    }
+
+    /**
+     * @param length длина данных в data, строка контрольной суммы ищется в её конце
+     * @return контрольная сумма из строки в конце файла или -1, если строки нет
+     */
+    private static long footerChecksum(byte[] data, int length) {
+        if (length < FOOTER_LENGTH) {
+            return -1;
+        }
+
+        String footer = new String(data, length - FOOTER_LENGTH, FOOTER_LENGTH, StandardCharsets.US_ASCII);
+        if (!footer.startsWith(FOOTER_PREFIX) || footer.charAt(FOOTER_LENGTH - 1) != '\n') {
+            return -1;
+        }
+        try {
+            return Long.parseLong(footer.substring(FOOTER_PREFIX.length(), FOOTER_LENGTH - 1), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean hasFooter(File file) {
+        if (!file.exists() || file.length() < FOOTER_LENGTH) {
+            return false;
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            byte[] tail = new byte[FOOTER_LENGTH];
+            input.seek(input.length() - FOOTER_LENGTH);
+            input.readFully(tail);
+            return footerChecksum(tail, FOOTER_LENGTH) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private File generation(int index) {
+        return index == 0 ? file : new File(file.getParentFile(), file.getName() + "." + index);
+    }
+
+    private void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void syncDirectory(File directory) {
+        // На некоторых ОС (Windows) каталог нельзя открыть для fsync - это не критично
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+}
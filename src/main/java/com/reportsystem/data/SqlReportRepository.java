@@ -0,0 +1,426 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.reportsystem.utils.ReportIds;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.util.*;
+import java.util.Date;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Встроенная SQL база (H2) в файле reports.mv.db.
+ * Изменения пишутся пакетами через подготовленный MERGE в одной транзакции,
+ * таблица проиндексирована по отправителю, нарушителю, статусу и дате создания.
+ * Выборочное чтение (storage.lazy-load) идёт через отдельное соединение и не ждёт записи пакетов.
+ */
+public class SqlReportRepository implements LookupRepository {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS reports ("
+                    + "id VARCHAR(64) PRIMARY KEY, "
+                    + "reporter_uuid UUID NOT NULL, "
+                    + "reporter_name VARCHAR(64), "
+                    + "violator_name VARCHAR(64), "
+                    + "violator_name_lower VARCHAR(64), "
+                    + "violator_uuid UUID, "
+                    + "reason VARCHAR, "
+                    + "comment_text VARCHAR, "
+                    + "created_at BIGINT NOT NULL, "
+                    + "status VARCHAR(16) NOT NULL, "
+                    + "admin_comment VARCHAR, "
+                    + "reviewed_by VARCHAR(64), "
+                    + "reviewed_by_id VARCHAR(32), "
+                    + "reviewed_at BIGINT, "
+                    + "report_key BIGINT, "
+                    + "report_version INT DEFAULT 0 NOT NULL, "
+                    + "discord_message_id BIGINT)",
+            // Базы, созданные до появления числовых ключей и версий
+            "ALTER TABLE reports ADD COLUMN IF NOT EXISTS report_key BIGINT",
+            "ALTER TABLE reports ADD COLUMN IF NOT EXISTS report_version INT DEFAULT 0 NOT NULL",
+            "ALTER TABLE reports ADD COLUMN IF NOT EXISTS discord_message_id BIGINT",
+            "CREATE INDEX IF NOT EXISTS idx_reports_reporter ON reports (reporter_uuid, created_at)",
+            "CREATE INDEX IF NOT EXISTS idx_reports_violator_uuid ON reports (violator_uuid)",
+            "CREATE INDEX IF NOT EXISTS idx_reports_violator_name ON reports (violator_name_lower)",
+            "CREATE INDEX IF NOT EXISTS idx_reports_status ON reports (status, created_at)",
+            "CREATE INDEX IF NOT EXISTS idx_reports_created ON reports (created_at)",
+            "CREATE INDEX IF NOT EXISTS idx_reports_key ON reports (report_key)"
+    };
+
+    private static final String UPSERT = "MERGE INTO reports (id, reporter_uuid, reporter_name, violator_name, "
+            + "violator_name_lower, violator_uuid, reason, comment_text, created_at, status, admin_comment, "
+            + "reviewed_by, reviewed_by_id, reviewed_at, report_key, report_version, discord_message_id) KEY (id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE = "DELETE FROM reports WHERE id = ?";
+
+    private static final String SELECT_ALL = "SELECT id, reporter_uuid, reporter_name, violator_name, violator_uuid, "
+            + "reason, comment_text, created_at, status, admin_comment, reviewed_by, reviewed_by_id, reviewed_at, "
+            + "report_version, discord_message_id FROM reports";
+
+    private static final String SELECT_RESOLVED = SELECT_ALL
+            + " WHERE status <> ? AND COALESCE(reviewed_at, created_at) < ?";
+
+    private static final int LOOKUP_CHUNK = 500;
+
+    private final File databaseFile;
+    private final int batchSize;
+    private final Logger logger;
+    private Connection connection;
+    private PreparedStatement upsert;
+    private final Object readLock = new Object();
+    private Connection readConnection; // соединение для выборочного чтения из других потоков
+    private volatile boolean schemaReady;
+
+    /**
+     * @param databaseFile путь к базе без расширения (H2 добавит .mv.db)
+     */
+    public SqlReportRepository(File databaseFile, int batchSize, Logger logger) {
+        this.databaseFile = databaseFile;
+        this.batchSize = Math.max(1, batchSize);
+        this.logger = logger;
+    }
+
+    @Override
+    public String getName() {
+        return "sql";
+    }
+
+    @Override
+    public synchronized boolean exists() {
+        if (!new File(databaseFile.getPath() + ".mv.db").exists()) {
+            return false;
+        }
+
+        try (Statement statement = connection().createStatement();
+             ResultSet result = statement.executeQuery("SELECT 1 FROM reports LIMIT 1")) {
+            return result.next();
+        } catch (SQLException e) {
+            logger.warning("Ошибка проверки базы данных: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized Map<String, Report> loadAll() throws IOException {
+        Map<String, Report> reports = new HashMap<>();
+
+        try (Statement statement = connection().createStatement();
+             ResultSet result = statement.executeQuery(SELECT_ALL)) {
+            while (result.next()) {
+                Report report = readReport(result);
+                reports.put(report.getId(), report);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Ошибка загрузки из базы данных: " + e.getMessage(), e);
+        }
+
+        return reports;
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<Report> action) throws IOException {
+        try (Statement statement = connection().createStatement()) {
+            statement.setFetchSize(1000);
+            try (ResultSet result = statement.executeQuery(SELECT_ALL)) {
+                while (result.next()) {
+                    action.accept(readReport(result));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Ошибка загрузки из базы данных: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Report> findByKeys(Collection<Long> keys) throws IOException {
+        List<Report> reports = new ArrayList<>(keys.size());
+        if (keys.isEmpty()) {
+            return reports;
+        }
+
+        List<Long> remaining = new ArrayList<>(keys);
+        synchronized (readLock) {
+            try {
+                Connection connection = readConnection();
+                for (int from = 0; from < remaining.size(); from += LOOKUP_CHUNK) {
+                    List<Long> chunk = remaining.subList(from, Math.min(remaining.size(), from + LOOKUP_CHUNK));
+                    String sql = SELECT_ALL + " WHERE report_key IN ("
+                            + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                    try (PreparedStatement select = connection.prepareStatement(sql)) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            select.setLong(i + 1, chunk.get(i));
+                        }
+                        try (ResultSet result = select.executeQuery()) {
+                            while (result.next()) {
+                                reports.add(readReport(result));
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IOException("Ошибка чтения из базы данных: " + e.getMessage(), e);
+            }
+        }
+        return reports;
+    }
+
+    @Override
+    public List<Report> findResolvedBefore(long threshold) throws IOException {
+        List<Report> reports = new ArrayList<>();
+        synchronized (readLock) {
+            try (PreparedStatement select = readConnection().prepareStatement(SELECT_RESOLVED)) {
+                select.setString(1, Report.ReportStatus.PENDING.getKey());
+                select.setLong(2, threshold);
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        reports.add(readReport(result));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IOException("Ошибка чтения из базы данных: " + e.getMessage(), e);
+            }
+        }
+        return reports;
+    }
+
+    @Override
+    public synchronized void save(Collection<Report> changed, Collection<Report> all) throws IOException {
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        try {
+            Connection connection = connection();
+            int pending = 0;
+            for (Report report : changed) {
+                bindReport(upsert, report);
+                upsert.addBatch();
+                if (++pending >= batchSize) {
+                    upsert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                upsert.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollbackQuietly();
+            throw new IOException("Ошибка записи в базу данных: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void delete(Collection<String> reportIds, Collection<Report> all) throws IOException {
+        if (reportIds.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement delete = connection().prepareStatement(DELETE)) {
+            int pending = 0;
+            for (String reportId : reportIds) {
+                delete.setString(1, reportId);
+                delete.addBatch();
+                if (++pending >= batchSize) {
+                    delete.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                delete.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollbackQuietly();
+            throw new IOException("Ошибка удаления из базы данных: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void retire() throws IOException {
+        close();
+        File database = new File(databaseFile.getPath() + ".mv.db");
+        if (database.exists()) {
+            Files.move(database.toPath(), new File(database.getParentFile(), database.getName() + ".migrated").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (readLock) {
+            if (readConnection != null) {
+                try {
+                    readConnection.close();
+                } catch (SQLException e) {
+                    logger.warning("Ошибка закрытия базы данных: " + e.getMessage());
+                }
+                readConnection = null;
+            }
+        }
+
+        synchronized (this) {
+            if (connection == null) {
+                return;
+            }
+
+            try {
+                upsert.close();
+                connection.close();
+            } catch (SQLException e) {
+                logger.warning("Ошибка закрытия базы данных: " + e.getMessage());
+            }
+            connection = null;
+            upsert = null;
+        }
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection != null) {
+            return connection;
+        }
+
+        databaseFile.getParentFile().mkdirs();
+        Connection opened = open();
+
+        try (Statement statement = opened.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+        opened.setAutoCommit(false);
+        fillMissingKeys(opened);
+        opened.commit();
+
+        connection = opened;
+        upsert = opened.prepareStatement(UPSERT);
+        schemaReady = true;
+        return connection;
+    }
+
+    /**
+     * Отдельное соединение для чтения: схема создаётся основным соединением
+     */
+    private Connection readConnection() throws SQLException {
+        if (readConnection == null) {
+            if (!schemaReady) {
+                throw new SQLException("База данных ещё не открыта");
+            }
+            readConnection = open();
+        }
+        return readConnection;
+    }
+
+    private Connection open() throws SQLException {
+        String url = "jdbc:h2:file:" + databaseFile.getAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+        // Подключаемся напрямую через драйвер: DriverManager не видит классы из загрузчика плагина
+        Connection opened = new org.h2.Driver().connect(url, new Properties());
+        if (opened == null) {
+            throw new SQLException("H2 driver rejected URL " + url);
+        }
+        return opened;
+    }
+
+    /**
+     * Заполняет числовые ключи у жалоб, записанных до появления колонки report_key
+     */
+    private void fillMissingKeys(Connection connection) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT id FROM reports WHERE report_key IS NULL")) {
+            while (result.next()) {
+                ids.add(result.getString(1));
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement update = connection.prepareStatement("UPDATE reports SET report_key = ? WHERE id = ?")) {
+            int pending = 0;
+            for (String id : ids) {
+                update.setLong(1, ReportIds.toKey(id));
+                update.setString(2, id);
+                update.addBatch();
+                if (++pending >= batchSize) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        }
+        logger.info("Заполнены ключи жалоб в базе данных: " + ids.size());
+    }
+
+    private void rollbackQuietly() {
+        try {
+            if (connection != null) {
+                connection.rollback();
+            }
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static void bindReport(PreparedStatement statement, Report report) throws SQLException {
+        statement.setString(1, report.getId());
+        statement.setObject(2, report.getReporterUUID());
+        statement.setString(3, report.getReporterName());
+        statement.setString(4, report.getViolatorName());
+        statement.setString(5, report.getViolatorName() != null
+                ? report.getViolatorName().toLowerCase(Locale.ROOT) : null);
+        statement.setObject(6, report.getViolatorUUID());
+        statement.setString(7, report.getReason());
+        statement.setString(8, report.getComment());
+        statement.setLong(9, report.getCreatedAtMillis());
+        statement.setString(10, report.getStatus().getKey());
+        statement.setString(11, report.getAdminComment());
+        statement.setString(12, report.getReviewedBy());
+        statement.setString(13, report.getReviewedById());
+        if (report.getReviewedAt() != null) {
+            statement.setLong(14, report.getReviewedAt().getTime());
+        } else {
+            statement.setNull(14, Types.BIGINT);
+        }
+        statement.setLong(15, report.getKey());
+        statement.setInt(16, report.getVersion());
+        if (report.getDiscordMessageId() != 0) {
+            statement.setLong(17, report.getDiscordMessageId());
+        } else {
+            statement.setNull(17, Types.BIGINT);
+        }
+    }
+
+    private static Report readReport(ResultSet result) throws SQLException {
+        Report report = new Report(
+                result.getString("id"),
+                result.getObject("reporter_uuid", UUID.class),
+                result.getString("reporter_name"),
+                result.getString("violator_name"),
+                result.getObject("violator_uuid", UUID.class),
+                result.getString("reason"),
+                result.getString("comment_text"),
+                result.getLong("created_at")
+        );
+
+        long reviewedAt = result.getLong("reviewed_at");
+        Date reviewedAtDate = result.wasNull() ? null : new Date(reviewedAt);
+
+        return report.restore(
+                result.getInt("report_version"),
+                Report.ReportStatus.fromKey(result.getString("status")),
+                result.getString("admin_comment"),
+                result.getString("reviewed_by"),
+                result.getString("reviewed_by_id"),
+                reviewedAtDate,
+                result.getLong("discord_message_id") // NULL читается как 0
+        );
+    }
+}
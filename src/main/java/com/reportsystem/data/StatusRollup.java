@@ -0,0 +1,60 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+import java.util.Arrays;
+
+/**
+ * Счётчики событий по статусам в кольце временных интервалов фиксированного размера
+ * (например, 48 часов или 30 дней). Старые интервалы перезаписываются новыми.
+ * Для PENDING считается создание жалобы, для остальных статусов - рассмотрение.
+ */
+public class StatusRollup {
+
+    private final long bucketMillis;
+    private final long[] epochs; // номер интервала (time / bucketMillis), хранящегося в слоте
+    private final int[][] counts; // слот -> счётчики по ordinal статуса
+
+    public StatusRollup(long bucketMillis, int size) {
+        this.bucketMillis = bucketMillis;
+        this.epochs = new long[size];
+        this.counts = new int[size][Report.ReportStatus.values().length];
+        Arrays.fill(epochs, Long.MIN_VALUE);
+    }
+
+    public synchronized void record(Report.ReportStatus status, long time, long now) {
+        long bucket = Math.floorDiv(time, bucketMillis);
+        long current = Math.floorDiv(now, bucketMillis);
+        if (bucket <= current - epochs.length) {
+            return; // за пределами кольца
+        }
+
+        int slot = (int) Math.floorMod(bucket, (long) epochs.length);
+        if (epochs[slot] != bucket) {
+            if (epochs[slot] > bucket) {
+                return; // слот уже занят более новым интервалом
+            }
+            epochs[slot] = bucket;
+            Arrays.fill(counts[slot], 0);
+        }
+        counts[slot][status.ordinal()]++;
+    }
+
+    /**
+     * Сумма событий со статусом за последние buckets интервалов (включая текущий)
+     */
+    public synchronized int sum(Report.ReportStatus status, long now, int buckets) {
+        long current = Math.floorDiv(now, bucketMillis);
+        int limit = Math.min(buckets, epochs.length);
+        int total = 0;
+
+        for (int i = 0; i < limit; i++) {
+            long bucket = current - i;
+            int slot = (int) Math.floorMod(bucket, (long) epochs.length);
+            if (epochs[slot] == bucket) {
+                total += counts[slot][status.ordinal()];
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,42 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+
+/**
+ * Результат DataManager.transition
+ */
+public final class StatusTransition {
+
+    public enum Outcome {
+        /** Статус изменён этим вызовом */
+        APPLIED,
+        /** Тот же модератор уже принял это же решение (повтор нажатия) - ничего не изменено */
+        UNCHANGED,
+        /** Жалоба уже в другом статусе: её рассмотрел кто-то другой */
+        CONFLICT,
+        NOT_FOUND
+    }
+
+    private final Outcome outcome;
+    private final Report report;
+
+    private StatusTransition(Outcome outcome, Report report) {
+        this.outcome = outcome;
+        this.report = report;
+    }
+
+    static StatusTransition of(Outcome outcome, Report report) {
+        return new StatusTransition(outcome, report);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Актуальная версия жалобы (новая при APPLIED), null при NOT_FOUND
+     */
+    public Report getReport() {
+        return report;
+    }
+}
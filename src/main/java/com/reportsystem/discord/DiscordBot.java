@@ -2,31 +2,48 @@ package com.reportsystem.discord;
 
 import com.reportsystem.LocaleManager;
 import com.reportsystem.ReportSystem;
+import com.reportsystem.data.DataManager;
 import com.reportsystem.models.Report;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.events.session.SessionRecreateEvent;
+import net.dv8tion.jda.api.events.session.SessionResumeEvent;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.requests.restaction.pagination.MessagePaginationAction;
+import net.dv8tion.jda.api.utils.TimeUtil;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 
 import java.awt.Color;
-import java.text.SimpleDateFormat;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DiscordBot {
 
+    private static final String APPROVE_PREFIX = "approve_";
+
     private final ReportSystem plugin;
     private JDA jda;
     private TextChannel reportChannel;
-    private final Map<String, String> reportMessages; // reportId -> messageId
+    private final ReportEmbedRenderer renderer;
+    private final DiscordOutbox outbox;
+    private final DiscordDeliveryQueue deliveries;
 
     public DiscordBot(ReportSystem plugin) {
         this.plugin = plugin;
-        this.reportMessages = new ConcurrentHashMap<>();
+        this.renderer = new ReportEmbedRenderer(plugin);
+        this.outbox = new DiscordOutbox(this);
+        this.deliveries = new DiscordDeliveryQueue(plugin, this::resend);
     }
 
     public void start() {
@@ -48,7 +65,18 @@ public class DiscordBot {
                     .enableIntents(GatewayIntent.MESSAGE_CONTENT, GatewayIntent.GUILD_MESSAGES, GatewayIntent.GUILD_VOICE_STATES)
                     .disableCache(CacheFlag.EMOJI, CacheFlag.STICKER)
                     .setActivity(Activity.watching("reports"))
-                    .addEventListeners(new DiscordButtonListener(plugin, this))
+                    .addEventListeners(new DiscordButtonListener(plugin, this), new ListenerAdapter() {
+                        // После переподключения досылаем жалобы, принятые без Discord
+                        @Override
+                        public void onSessionResume(SessionResumeEvent event) {
+                            deliveries.resume();
+                        }
+
+                        @Override
+                        public void onSessionRecreate(SessionRecreateEvent event) {
+                            deliveries.resume();
+                        }
+                    })
                     .build();
 
             jda.awaitReady();
@@ -62,228 +90,287 @@ public class DiscordBot {
 
             plugin.getLogger().info("Discord bot connected successfully!");
 
+            // Жалобы должны быть загружены до сверки и досылки, а whenReady вызывается из основного потока
+            plugin.getServer().getScheduler().runTask(plugin, () -> plugin.getDataManager().whenReady(() -> {
+                if (plugin.getConfig().getBoolean("discord.reconcile.enabled", false)) {
+                    reconcileMessages();
+                }
+                deliveries.resume();
+            }));
+
         } catch (Exception e) {
             plugin.getLogger().severe("Failed to start Discord bot: " + e.getMessage());
             jda = null;
         }
     }
 
+    /**
+     * Останавливает очередь отправки и JDA. Вызывается до остановки DataManager:
+     * ответ на последнюю отправку ещё записывает ID сообщения в жалобу.
+     */
     public void shutdown() {
+        outbox.close(5_000);
         if (jda != null) {
             jda.shutdown();
+            try {
+                if (!jda.awaitShutdown(Duration.ofSeconds(10))) {
+                    jda.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                jda.shutdownNow();
+            }
             plugin.getLogger().info("Discord бот остановлен!");
         }
     }
 
+    /**
+     * Ставит новую жалобу в очередь на публикацию. Жалоба запоминается на диске до подтверждения
+     * от Discord, поэтому не теряется ни при недоступности Discord, ни при перезапуске.
+     */
     public void sendReport(Report report) {
-        if (reportChannel == null) {
-            plugin.getLogger().warning("Канал для отправки репортов не настроен!");
+        deliveries.add(report.getId());
+        outbox.post(report);
+    }
+
+    /**
+     * Повторная отправка жалобы из очереди доставки
+     */
+    private void resend(String reportId) {
+        if (!plugin.getDataManager().isReady()) {
             return;
         }
 
-        LocaleManager locale = plugin.getLocaleManager();
-        EmbedBuilder embed = new EmbedBuilder();
+        Report report = plugin.getDataManager().getReport(reportId);
+        if (report == null || report.getDiscordMessageId() != 0) {
+            deliveries.delivered(reportId);
+            return;
+        }
+        outbox.post(report);
+    }
 
-        embed.setTitle(locale.getRaw("discord.new-report-title") + " #" + report.getId());
-        embed.setColor(Color.ORANGE);
+    /**
+     * Ставит в очередь правку сообщения жалобы; несколько изменений подряд дадут одну правку
+     */
+    public void updateReportComment(Report report) {
+        outbox.update(report);
+    }
 
-        StringBuilder description = new StringBuilder();
-        description.append("**").append(locale.getRaw("discord.reporter")).append(":** ")
-                .append(report.getReporterName()).append("\n\n");
+    public void updateReportStatus(Report report) {
+        outbox.update(report);
+    }
 
-        description.append("**").append(locale.getRaw("discord.violator")).append(":** ")
-                .append(report.getViolatorName()).append("\n");
+    /**
+     * Публикует жалобу (вызывается очередью). Результат завершается после сохранения ID сообщения в жалобе
+     */
+    CompletableFuture<?> deliverPost(Report report) {
+        if (!isConnected()) {
+            // Останется в очереди доставки до переподключения
+            deliveries.failed(report.getId());
+            return CompletableFuture.completedFuture(null);
+        }
 
-        if (report.getViolatorUUID() != null) {
-            description.append("**").append(locale.getRaw("discord.violator-uuid")).append(":** `")
-                    .append(report.getViolatorUUID().toString()).append("`\n");
+        // Повтор мог быть поставлен в очередь, пока выполнялась предыдущая отправка этой же жалобы
+        Report current = plugin.getDataManager().getReport(report.getId());
+        if (current == null || current.getDiscordMessageId() != 0) {
+            deliveries.delivered(report.getId());
+            return CompletableFuture.completedFuture(null);
         }
 
-        description.append("**").append(locale.getRaw("discord.reason")).append(":** ")
-                .append(report.getReason()).append("\n");
-        description.append("**").append(locale.getRaw("discord.comment")).append(":** ")
-                .append(report.getComment()).append("\n");
-        description.append("\n**").append(locale.getRaw("discord.status")).append(":** ")
-                .append(locale.getRaw("discord.status-pending"));
-
-        embed.setDescription(description.toString());
-
-        SimpleDateFormat sdf = new SimpleDateFormat(locale.getRaw("date-format"));
-        embed.setFooter(locale.getRaw("discord.created") + ": " + sdf.format(report.getCreatedAt()));
-        embed.setTimestamp(report.getCreatedAt().toInstant());
-
-        reportChannel.sendMessageEmbeds(embed.build())
-                .setActionRow(
-                        Button.success("approve_" + report.getId(), locale.getRaw("discord.button-approve")),
-                        Button.danger("reject_" + report.getId(), locale.getRaw("discord.button-reject")),
-                        Button.secondary("check_" + report.getId(), locale.getRaw("discord.button-check")),
-                        Button.primary("comment_" + report.getId(), locale.getRaw("discord.button-comment"))
-                )
-                .queue(message -> {
-                    reportMessages.put(report.getId(), message.getId());
+        return reportChannel.sendMessageEmbeds(renderer.render(current))
+                .setComponents(renderer.buttons(current))
+                .submit()
+                .thenAccept(message -> {
+                    // ID сообщения хранится в самой жалобе, чтобы её можно было обновить и после перезапуска
+                    plugin.getDataManager().modifyReport(report.getId(),
+                            stored -> stored.withDiscordMessageId(message.getIdLong()));
+                    deliveries.delivered(report.getId());
                     plugin.getLogger().info("Жалоба #" + report.getId() + " отправлена в Discord");
-                }, error -> {
-                    plugin.getLogger().severe("Ошибка отправки жалобы в Discord: " + error.getMessage());
+                })
+                .exceptionally(error -> {
+                    plugin.getLogger().warning("Ошибка отправки жалобы #" + report.getId() + " в Discord, "
+                            + "отправка будет повторена: " + error.getMessage());
+                    deliveries.failed(report.getId());
+                    return null;
                 });
     }
 
-    public void updateReportComment(Report report) {
-        String messageId = reportMessages.get(report.getId());
-        if (messageId == null || reportChannel == null) {
-            return;
+    /**
+     * Перерисовывает сообщение жалобы по её состоянию (вызывается очередью)
+     */
+    CompletableFuture<?> deliverEdit(Report report) {
+        if (reportChannel == null) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        reportChannel.retrieveMessageById(messageId).queue(message -> {
-            LocaleManager locale = plugin.getLocaleManager();
-            EmbedBuilder embed = new EmbedBuilder();
-
-            embed.setTitle(locale.getRaw("discord.new-report-title") + " #" + report.getId());
-            embed.setColor(Color.ORANGE);
+        long messageId = report.getDiscordMessageId();
+        if (messageId == 0) {
+            // Ответ на отправку мог прийти уже после того, как была прочитана эта версия жалобы
+            Report current = plugin.getDataManager().getReport(report.getId());
+            messageId = current != null ? current.getDiscordMessageId() : 0;
+        }
+        if (messageId == 0) {
+            // Ещё не доставленная жалоба будет опубликована сразу в актуальном состоянии
+            if (!deliveries.contains(report.getId())) {
+                plugin.getLogger().warning("Жалоба #" + report.getId() + " не связана с сообщением в Discord");
+            }
+            return CompletableFuture.completedFuture(null);
+        }
 
-            StringBuilder description = new StringBuilder();
-            description.append("**").append(locale.getRaw("discord.reporter")).append(":** ")
-                    .append(report.getReporterName()).append("\n\n");
+        // Правка по ID без предварительного получения сообщения - один REST-запрос вместо двух
+        return reportChannel.editMessageEmbedsById(messageId, renderer.render(report))
+                .setComponents(renderer.buttons(report))
+                .submit()
+                .handle((message, error) -> {
+                    if (error == null) {
+                        plugin.getLogger().info("Жалоба #" + report.getId() + " обновлена в Discord");
+                    } else if (error instanceof ErrorResponseException response
+                            && response.getErrorResponse() == ErrorResponse.UNKNOWN_MESSAGE) {
+                        // Сообщение удалили из канала - публикуем жалобу заново, новый ID сохранится в ней
+                        plugin.getLogger().warning("Сообщение жалобы #" + report.getId()
+                                + " удалено из Discord, жалоба будет отправлена заново");
+                        Report current = plugin.getDataManager().modifyReport(report.getId(),
+                                stored -> stored.withDiscordMessageId(0));
+                        if (current != null) {
+                            sendReport(current);
+                        }
+                    } else {
+                        plugin.getLogger().warning("Ошибка обновления жалобы в Discord: " + error.getMessage());
+                    }
+                    return null;
+                });
+    }
 
-            description.append("**").append(locale.getRaw("discord.violator")).append(":** ")
-                    .append(report.getViolatorName()).append("\n");
+    /**
+     * Восстанавливает связь жалоб с сообщениями по истории канала - для жалоб, отправленных
+     * до появления сохранённых ID или чей ответ на отправку был потерян.
+     * Период discord.reconcile.max-age-days делится на parallelism диапазонов, каждый листается
+     * постранично и независимо; сверка идёт в фоне и не задерживает запуск.
+     */
+    private void reconcileMessages() {
+        if (reportChannel == null) {
+            return;
+        }
 
-            if (report.getViolatorUUID() != null) {
-                description.append("**").append(locale.getRaw("discord.violator-uuid")).append(":** `")
-                        .append(report.getViolatorUUID().toString()).append("`\n");
+        int parallelism = Math.max(1, plugin.getConfig().getInt("discord.reconcile.parallelism", 4));
+        int maxMessages = Math.max(1, plugin.getConfig().getInt("discord.reconcile.max-messages", 5000));
+        long maxAge = TimeUnit.DAYS.toMillis(Math.max(1, plugin.getConfig().getLong("discord.reconcile.max-age-days", 14)));
+
+        long now = System.currentTimeMillis();
+        long step = maxAge / parallelism;
+        long selfId = jda.getSelfUser().getIdLong();
+        AtomicInteger scanned = new AtomicInteger();
+        AtomicInteger restored = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger(parallelism);
+
+        for (int i = 0; i < parallelism; i++) {
+            long oldestId = TimeUtil.getDiscordTimestamp(now - step * (i + 1));
+            MessagePaginationAction history = reportChannel.getIterableHistory();
+            if (i > 0) {
+                // История листается от новых к старым: начинаем с верхней границы диапазона
+                history = history.skipTo(TimeUtil.getDiscordTimestamp(now - step * i));
             }
 
-            description.append("**").append(locale.getRaw("discord.reason")).append(":** ")
-                    .append(report.getReason()).append("\n");
-            description.append("**").append(locale.getRaw("discord.comment")).append(":** ")
-                    .append(report.getComment()).append("\n");
-            description.append("\n**").append(locale.getRaw("discord.status")).append(":** ")
-                    .append(locale.getRaw("discord.status-pending"));
+            history.forEachAsync(message -> {
+                if (message.getIdLong() < oldestId || scanned.incrementAndGet() > maxMessages) {
+                    return false;
+                }
+                if (message.getAuthor().getIdLong() == selfId && restoreLink(message)) {
+                    restored.incrementAndGet();
+                }
+                return true;
+            }, error -> plugin.getLogger().warning("Ошибка чтения истории Discord-канала: " + error.getMessage()))
+                    .whenComplete((ignored, error) -> {
+                        if (running.decrementAndGet() == 0) {
+                            plugin.getLogger().info("Сверка с Discord: просмотрено сообщений - "
+                                    + Math.min(scanned.get(), maxMessages) + ", восстановлено связей - " + restored.get());
+                        }
+                    });
+        }
+    }
 
-            if (report.getAdminComment() != null) {
-                description.append("\n\n**💬 ").append(locale.getRaw("discord.admin-comment"))
-                        .append(":** ").append(report.getAdminComment());
+    /**
+     * Связывает жалобу с найденным сообщением, если у неё ещё нет сохранённого ID
+     */
+    private boolean restoreLink(Message message) {
+        String reportId = null;
+        for (Button button : message.getButtons()) {
+            String buttonId = button.getId();
+            if (buttonId != null && buttonId.startsWith(APPROVE_PREFIX)) {
+                reportId = buttonId.substring(APPROVE_PREFIX.length());
+                break;
             }
+        }
+        if (reportId == null) {
+            return false;
+        }
 
-            if (report.getReviewedById() != null) {
-                description.append("\n**").append(locale.getRaw("discord.comment-left-by"))
-                        .append(":** <@").append(report.getReviewedById()).append(">");
-            } else if (report.getReviewedBy() != null) {
-                description.append("\n**").append(locale.getRaw("discord.comment-left-by"))
-                        .append(":** ").append(report.getReviewedBy());
-            }
+        DataManager dataManager = plugin.getDataManager();
+        Report report = dataManager.getReport(reportId);
+        if (report == null || report.getDiscordMessageId() != 0) {
+            return false;
+        }
 
-            embed.setDescription(description.toString());
-
-            SimpleDateFormat sdf = new SimpleDateFormat(locale.getRaw("date-format"));
-            embed.setFooter(locale.getRaw("discord.created") + ": " + sdf.format(report.getCreatedAt()));
-            embed.setTimestamp(report.getCreatedAt().toInstant());
-
-            message.editMessageEmbeds(embed.build())
-                    .setActionRow(
-                            Button.success("approve_" + report.getId(), locale.getRaw("discord.button-approve")),
-                            Button.danger("reject_" + report.getId(), locale.getRaw("discord.button-reject")),
-                            Button.secondary("check_" + report.getId(), locale.getRaw("discord.button-check")),
-                            Button.primary("comment_" + report.getId(), locale.getRaw("discord.button-comment"))
-                    )
-                    .queue(
-                            success -> plugin.getLogger().info("Комментарий к жалобе #" + report.getId() + " обновлён в Discord"),
-                            error -> plugin.getLogger().warning("Ошибка обновления жалобы в Discord: " + error.getMessage())
-                    );
-        }, error -> {
-            plugin.getLogger().warning("Не удалось найти сообщение для жалобы #" + report.getId());
-        });
+        long messageId = message.getIdLong();
+        Report linked = dataManager.modifyReport(reportId, current -> current.getDiscordMessageId() == 0
+                ? current.withDiscordMessageId(messageId) : current);
+        return linked != null && linked.getDiscordMessageId() == messageId;
     }
 
-    public void updateReportStatus(Report report) {
-        String messageId = reportMessages.get(report.getId());
-        if (messageId == null || reportChannel == null) {
+    /**
+     * Отправляет в канал сводку статистики жалоб
+     */
+    public void sendStatistics() {
+        if (reportChannel == null) {
+            plugin.getLogger().warning("Канал для отправки репортов не настроен!");
             return;
         }
 
-        reportChannel.retrieveMessageById(messageId).queue(message -> {
-            LocaleManager locale = plugin.getLocaleManager();
-            EmbedBuilder embed = new EmbedBuilder();
-
-            embed.setTitle(locale.getRaw("discord.new-report-title") + " #" + report.getId());
-
-            Color color;
-            String statusText;
-
-            switch (report.getStatus()) {
-                case APPROVED:
-                    color = Color.GREEN;
-                    statusText = locale.getRaw("discord.status-approved");
-                    break;
-                case REJECTED:
-                    color = Color.RED;
-                    statusText = locale.getRaw("discord.status-rejected");
-                    break;
-                default:
-                    color = Color.ORANGE;
-                    statusText = locale.getRaw("discord.status-pending");
-                    break;
-            }
-
-            embed.setColor(color);
-
-            StringBuilder description = new StringBuilder();
-            description.append("**").append(locale.getRaw("discord.reporter")).append(":** ")
-                    .append(report.getReporterName()).append("\n\n");
-
-            description.append("**").append(locale.getRaw("discord.violator")).append(":** ")
-                    .append(report.getViolatorName()).append("\n");
-
-            if (report.getViolatorUUID() != null) {
-                description.append("**").append(locale.getRaw("discord.violator-uuid")).append(":** `")
-                        .append(report.getViolatorUUID().toString()).append("`\n");
-            }
-
-            description.append("**").append(locale.getRaw("discord.reason")).append(":** ")
-                    .append(report.getReason()).append("\n");
-            description.append("**").append(locale.getRaw("discord.comment")).append(":** ")
-                    .append(report.getComment()).append("\n");
-            description.append("\n**").append(locale.getRaw("discord.status")).append(":** ")
-                    .append(statusText);
-
-            if (report.getReviewedById() != null) {
-                description.append("\n**").append(locale.getRaw("discord.reviewed-by"))
-                        .append(":** <@").append(report.getReviewedById()).append(">");
-            } else if (report.getReviewedBy() != null) {
-                description.append("\n**").append(locale.getRaw("discord.reviewed-by"))
-                        .append(":** ").append(report.getReviewedBy());
-            }
+        LocaleManager locale = plugin.getLocaleManager();
+        DataManager dataManager = plugin.getDataManager();
+        EmbedBuilder embed = new EmbedBuilder();
 
-            if (report.getAdminComment() != null) {
-                description.append("\n**").append(locale.getRaw("discord.admin-comment"))
-                        .append(":** ").append(report.getAdminComment());
-            }
+        embed.setTitle(locale.getRaw("discord.stats-title"));
+        embed.setColor(Color.CYAN);
+
+        embed.addField(locale.getRaw("discord.stats-total"), formatStatistics(locale,
+                dataManager.getStatusCount(Report.ReportStatus.PENDING),
+                dataManager.getStatusCount(Report.ReportStatus.APPROVED),
+                dataManager.getStatusCount(Report.ReportStatus.REJECTED)), false);
+        embed.addField(locale.getRaw("discord.stats-last-day"), formatStatistics(locale,
+                dataManager.getActivityLastHours(Report.ReportStatus.PENDING, 24),
+                dataManager.getActivityLastHours(Report.ReportStatus.APPROVED, 24),
+                dataManager.getActivityLastHours(Report.ReportStatus.REJECTED, 24)), true);
+        embed.addField(locale.getRaw("discord.stats-last-week"), formatStatistics(locale,
+                dataManager.getActivityLastDays(Report.ReportStatus.PENDING, 7),
+                dataManager.getActivityLastDays(Report.ReportStatus.APPROVED, 7),
+                dataManager.getActivityLastDays(Report.ReportStatus.REJECTED, 7)), true);
+        embed.setTimestamp(Instant.now());
+
+        reportChannel.sendMessageEmbeds(embed.build()).queue(
+                success -> plugin.getLogger().info("Статистика жалоб отправлена в Discord"),
+                error -> plugin.getLogger().warning("Ошибка отправки статистики в Discord: " + error.getMessage())
+        );
+    }
 
-            embed.setDescription(description.toString());
-
-            SimpleDateFormat sdf = new SimpleDateFormat(locale.getRaw("date-format"));
-            embed.setFooter(locale.getRaw("discord.created") + ": " + sdf.format(report.getCreatedAt()));
-            embed.setTimestamp(report.getCreatedAt().toInstant());
-
-            message.editMessageEmbeds(embed.build())
-                    .setActionRow(
-                            Button.success("approve_" + report.getId(), locale.getRaw("discord.button-approve")).asDisabled(),
-                            Button.danger("reject_" + report.getId(), locale.getRaw("discord.button-reject")).asDisabled(),
-                            Button.secondary("check_" + report.getId(), locale.getRaw("discord.button-check")).asDisabled(),
-                            Button.primary("comment_" + report.getId(), locale.getRaw("discord.button-comment")).asDisabled()
-                    )
-                    .queue(
-                            success -> plugin.getLogger().info("Статус жалобы #" + report.getId() + " обновлён в Discord"),
-                            error -> plugin.getLogger().warning("Ошибка обновления жалобы в Discord: " + error.getMessage())
-                    );
-        }, error -> {
-            plugin.getLogger().warning("Не удалось найти сообщение для жалобы #" + report.getId());
-        });
+    private String formatStatistics(LocaleManager locale, int pending, int approved, int rejected) {
+        return "**" + locale.getRaw("discord.status-pending") + ":** " + pending + "\n"
+                + "**" + locale.getRaw("discord.status-approved") + ":** " + approved + "\n"
+                + "**" + locale.getRaw("discord.status-rejected") + ":** " + rejected;
     }
 
     public boolean isConnected() {
         return jda != null && jda.getStatus() == JDA.Status.CONNECTED && reportChannel != null;
     }
 
+    public DiscordDeliveryQueue getDeliveries() {
+        return deliveries;
+    }
+
+    public DiscordOutbox getOutbox() {
+        return outbox;
+    }
+
     public JDA getJDA() {
         return jda;
     }
@@ -2,33 +2,59 @@ package com.reportsystem.discord;
 
 import com.reportsystem.LocaleManager;
 import com.reportsystem.ReportSystem;
+import com.reportsystem.data.StatusTransition;
 import com.reportsystem.models.Report;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.channel.unions.AudioChannelUnion;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
 import net.dv8tion.jda.api.interactions.components.text.TextInput;
 import net.dv8tion.jda.api.interactions.components.text.TextInputStyle;
 import net.dv8tion.jda.api.interactions.modals.Modal;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 public class DiscordButtonListener extends ListenerAdapter {
 
+    private static final int SEEN_INTERACTIONS = 1024;
+
     private final ReportSystem plugin;
     private final DiscordBot discordBot;
+    private final Map<String, Boolean> seenInteractions; // ID последних обработанных взаимодействий
 
     public DiscordButtonListener(ReportSystem plugin, DiscordBot discordBot) {
         this.plugin = plugin;
         this.discordBot = discordBot;
+        this.seenInteractions = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SEEN_INTERACTIONS;
+            }
+        });
+    }
+
+    /**
+     * Discord может доставить одно взаимодействие повторно (например, после переподключения шлюза) -
+     * обрабатываем каждое ID только один раз
+     */
+    private boolean firstDelivery(String interactionId) {
+        return seenInteractions.putIfAbsent(interactionId, Boolean.TRUE) == null;
     }
 
     @Override
     public void onButtonInteraction(ButtonInteractionEvent event) {
+        if (!firstDelivery(event.getId())) {
+            return;
+        }
+
         String buttonId = event.getComponentId();
         String username = event.getUser().getName();
         String userId = event.getUser().getId();
@@ -46,6 +72,10 @@ public class DiscordButtonListener extends ListenerAdapter {
 
     @Override
     public void onModalInteraction(ModalInteractionEvent event) {
+        if (!firstDelivery(event.getId())) {
+            return;
+        }
+
         String modalId = event.getModalId();
 
         if (modalId.startsWith("comment_modal_")) {
@@ -58,48 +88,57 @@ public class DiscordButtonListener extends ListenerAdapter {
     private void handleApprove(ButtonInteractionEvent event, String buttonId, String username, String userId) {
         String reportId = buttonId.replace("approve_", "");
 
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            LocaleManager locale = plugin.getLocaleManager();
-            Report report = plugin.getDataManager().getReport(reportId);
+        if (!plugin.getDataManager().isReady()) {
+            // Форму нельзя показать после отложенного ответа, а ждать загрузки дольше 3 секунд Discord не даёт -
+            // открываем её сразу, статус проверит переход при отправке формы
+            event.replyModal(createPunishmentModal(reportId)).queue();
+            return;
+        }
 
-            if (report == null) {
-                event.reply(locale.getRaw("discord.report-not-found")).setEphemeral(true).queue();
-                return;
-            }
+        LocaleManager locale = plugin.getLocaleManager();
+        Report report = plugin.getDataManager().getReport(reportId);
 
-            if (report.getStatus() != Report.ReportStatus.PENDING) {
-                event.reply(locale.getRaw("discord.already-reviewed")).setEphemeral(true).queue();
-                return;
-            }
+        if (report == null) {
+            reply(event, locale.getRaw("discord.report-not-found"));
+            return;
+        }
 
-            // Создаем модальную форму для наказания
-            TextInput punishmentType = TextInput.create("punishment_type", "Punishment Type", TextInputStyle.SHORT)
-                    .setPlaceholder("ban / mute / kick / warn")
-                    .setRequired(true)
-                    .setMinLength(3)
-                    .setMaxLength(10)
-                    .build();
-
-            TextInput duration = TextInput.create("duration", "Duration", TextInputStyle.SHORT)
-                    .setPlaceholder("Examples: 30m, 7d, 1y, permanent")
-                    .setRequired(false)
-                    .setMaxLength(20)
-                    .build();
-
-            TextInput reason = TextInput.create("reason", "Reason (optional)", TextInputStyle.PARAGRAPH)
-                    .setPlaceholder("Additional punishment reason...")
-                    .setRequired(false)
-                    .setMaxLength(500)
-                    .build();
-
-            Modal modal = Modal.create("punishment_modal_" + reportId, "Approve Report #" + reportId)
-                    .addActionRow(punishmentType)
-                    .addActionRow(duration)
-                    .addActionRow(reason)
-                    .build();
-
-            event.replyModal(modal).queue();
-        });
+        if (report.getStatus() != Report.ReportStatus.PENDING) {
+            reply(event, locale.getRaw("discord.already-reviewed"));
+            return;
+        }
+
+        event.replyModal(createPunishmentModal(reportId)).queue();
+    }
+
+    /**
+     * Форма наказания при одобрении жалобы
+     */
+    private Modal createPunishmentModal(String reportId) {
+        TextInput punishmentType = TextInput.create("punishment_type", "Punishment Type", TextInputStyle.SHORT)
+                .setPlaceholder("ban / mute / kick / warn")
+                .setRequired(true)
+                .setMinLength(3)
+                .setMaxLength(10)
+                .build();
+
+        TextInput duration = TextInput.create("duration", "Duration", TextInputStyle.SHORT)
+                .setPlaceholder("Examples: 30m, 7d, 1y, permanent")
+                .setRequired(false)
+                .setMaxLength(20)
+                .build();
+
+        TextInput reason = TextInput.create("reason", "Reason (optional)", TextInputStyle.PARAGRAPH)
+                .setPlaceholder("Additional punishment reason...")
+                .setRequired(false)
+                .setMaxLength(500)
+                .build();
+
+        return Modal.create("punishment_modal_" + reportId, "Approve Report #" + reportId)
+                .addActionRow(punishmentType)
+                .addActionRow(duration)
+                .addActionRow(reason)
+                .build();
     }
 
     private void handlePunishmentModal(ModalInteractionEvent event, String modalId) {
@@ -111,29 +150,20 @@ public class DiscordButtonListener extends ListenerAdapter {
         String username = event.getUser().getName();
         String userId = event.getUser().getId();
 
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
+        // Информация о наказании сохраняется в комментарии администратора
+        String adminComment = String.format("Punishment: %s | Duration: %s", punishmentType, duration)
+                + (reason.isEmpty() ? "" : " | Reason: " + reason);
+
+        runWithData(event, () -> {
             LocaleManager locale = plugin.getLocaleManager();
-            Report report = plugin.getDataManager().getReport(reportId);
 
-            if (report == null) {
-                event.reply(locale.getRaw("discord.report-not-found")).setEphemeral(true).queue();
+            // Наказание выполняется только тем, кто действительно перевёл жалобу из PENDING
+            StatusTransition transition = plugin.getDataManager().transition(reportId,
+                    Report.ReportStatus.PENDING, Report.ReportStatus.APPROVED, username, userId, adminComment);
+            if (!replyIfNotApplied(event, transition)) {
                 return;
             }
-
-            // Обновляем статус репорта
-            report.setStatus(Report.ReportStatus.APPROVED);
-            report.setReviewedBy(username);
-            report.setReviewedById(userId);
-            report.setReviewedAt(new Date());
-
-            // Сохраняем информацию о наказании
-            String punishmentInfo = String.format("Punishment: %s | Duration: %s", punishmentType, duration);
-            if (!reason.isEmpty()) {
-                punishmentInfo += " | Reason: " + reason;
-            }
-            report.setAdminComment(punishmentInfo);
-
-            plugin.getDataManager().saveReport(report);
+            Report report = transition.getReport();
 
             // Выполняем наказание
             executePunishment(report.getViolatorName(), punishmentType, duration, report.getReason() + (reason.isEmpty() ? "" : " | " + reason));
@@ -144,11 +174,65 @@ public class DiscordButtonListener extends ListenerAdapter {
             // Уведомляем игрока
             notifyPlayerInGame(report, locale.getRaw("status-approved"));
 
-            event.reply("✓ Report #" + reportId + " approved! Punishment: " + punishmentType + " (" + duration + ")")
-                    .setEphemeral(true).queue();
+            reply(event, "✓ Report #" + reportId + " approved! Punishment: " + punishmentType + " (" + duration + ")");
         });
     }
 
+    /**
+     * Отвечает модератору, если переход статуса не выполнен этим вызовом
+     *
+     * @return true, если переход выполнен и обработчик должен продолжить
+     */
+    private boolean replyIfNotApplied(IReplyCallback event, StatusTransition transition) {
+        LocaleManager locale = plugin.getLocaleManager();
+        switch (transition.getOutcome()) {
+            case APPLIED:
+                return true;
+            case NOT_FOUND:
+                reply(event, locale.getRaw("discord.report-not-found"));
+                return false;
+            case UNCHANGED:
+                reply(event, locale.getRaw("discord.already-reviewed-by-you"));
+                return false;
+            default:
+                reply(event, locale.getRaw("discord.already-reviewed"));
+                return false;
+        }
+    }
+
+    /**
+     * Выполняет обработчик данных сразу в потоке JDA (операции DataManager потокобезопасны);
+     * пока жалобы загружаются, взаимодействие подтверждается и обработчик ждёт в очереди
+     */
+    private void runWithData(IReplyCallback event, Runnable task) {
+        if (plugin.getDataManager().isReady()) {
+            task.run();
+        } else {
+            runWhenReady(event, task);
+        }
+    }
+
+    /**
+     * Выполняет обработчик в основном потоке; пока жалобы загружаются, он ждёт в очереди.
+     * Discord ждёт ответа только 3 секунды, поэтому взаимодействие подтверждается до постановки в очередь,
+     * а ответ отправляется через его hook
+     */
+    private void runWhenReady(IReplyCallback event, Runnable task) {
+        event.deferReply(true).queue();
+        plugin.getServer().getScheduler().runTask(plugin, () -> plugin.getDataManager().whenReady(task));
+    }
+
+    /**
+     * Скрытый ответ модератору: напрямую или правкой отложенного ответа
+     */
+    private void reply(IReplyCallback event, String message) {
+        if (event.isAcknowledged()) {
+            event.getHook().editOriginal(message).queue();
+        } else {
+            event.reply(message).setEphemeral(true).queue();
+        }
+    }
+
     private void executePunishment(String playerName, String type, String duration, String reason) {
         plugin.getServer().getScheduler().runTask(plugin, () -> {
             String command = "";
@@ -186,31 +270,19 @@ public class DiscordButtonListener extends ListenerAdapter {
     private void handleReject(ButtonInteractionEvent event, String buttonId, String username, String userId) {
         String reportId = buttonId.replace("reject_", "");
 
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
+        runWithData(event, () -> {
             LocaleManager locale = plugin.getLocaleManager();
-            Report report = plugin.getDataManager().getReport(reportId);
-
-            if (report == null) {
-                event.reply(locale.getRaw("discord.report-not-found")).setEphemeral(true).queue();
+            StatusTransition transition = plugin.getDataManager().transition(reportId,
+                    Report.ReportStatus.PENDING, Report.ReportStatus.REJECTED, username, userId, null);
+            if (!replyIfNotApplied(event, transition)) {
                 return;
             }
-
-            if (report.getStatus() != Report.ReportStatus.PENDING) {
-                event.reply(locale.getRaw("discord.already-reviewed")).setEphemeral(true).queue();
-                return;
-            }
-
-            report.setStatus(Report.ReportStatus.REJECTED);
-            report.setReviewedBy(username);
-            report.setReviewedById(userId);
-            report.setReviewedAt(new Date());
-            plugin.getDataManager().saveReport(report);
+            Report report = transition.getReport();
 
             discordBot.updateReportStatus(report);
             notifyPlayerInGame(report, locale.getRaw("status-rejected"));
 
-            event.reply(locale.getRaw("discord.rejected-success").replace("{id}", reportId))
-                    .setEphemeral(true).queue();
+            reply(event, locale.getRaw("discord.rejected-success").replace("{id}", reportId));
         });
     }
 
@@ -220,58 +292,64 @@ public class DiscordButtonListener extends ListenerAdapter {
         // Проверяем, находится ли админ в голосовом канале ДО перехода в синхронный контекст
         Member member = event.getMember();
         if (member == null || member.getVoiceState() == null || !member.getVoiceState().inAudioChannel()) {
-            event.reply("❌ You must be in a voice channel to call a player for check!")
-                    .setEphemeral(true).queue();
+            reply(event, "❌ You must be in a voice channel to call a player for check!");
             return;
         }
 
         AudioChannelUnion voiceChannel = member.getVoiceState().getChannel();
         String channelName = voiceChannel.getName();
 
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            LocaleManager locale = plugin.getLocaleManager();
-            Report report = plugin.getDataManager().getReport(reportId);
+        // Жалоба может читаться с диска (lazy-load, архив) - загружаем её вне основного потока
+        runWhenReady(event, () -> plugin.getDataManager().getReport(reportId,
+                report -> callForCheck(event, report, username, channelName)));
+    }
 
-            if (report == null) {
-                event.reply(locale.getRaw("discord.report-not-found")).setEphemeral(true).queue();
-                return;
-            }
+    /**
+     * Замораживает нарушителя и вызывает его на проверку (в основном потоке)
+     */
+    private void callForCheck(ButtonInteractionEvent event, Report report, String username, String channelName) {
+        LocaleManager locale = plugin.getLocaleManager();
 
-            // Находим игрока на сервере
-            Player violator = Bukkit.getPlayer(report.getViolatorName());
-            if (violator == null || !violator.isOnline()) {
-                event.reply("❌ Player " + report.getViolatorName() + " is not online!")
-                        .setEphemeral(true).queue();
-                return;
-            }
+        if (report == null) {
+            reply(event, locale.getRaw("discord.report-not-found"));
+            return;
+        }
 
-            // Замораживаем игрока
-            freezePlayer(violator, true);
-
-            // Отправляем сообщение игроку
-            boolean isRussian = locale.getCurrentLocale().equals("ru-RU");
-            String message = isRussian
-                    ? String.format("§c§l[ПРОВЕРКА] §fВы вызваны на проверку администратором!\n§eЗайдите в голосовой канал Discord: §a%s", channelName)
-                    : String.format("§c§l[CHECK] §fYou have been called for a check by an administrator!\n§eJoin the Discord voice channel: §a%s", channelName);
-
-            violator.sendMessage(message);
-            violator.sendTitle(
-                    isRussian ? "§c§lПРОВЕРКА" : "§c§lCHECK",
-                    isRussian ? "§eЗайдите в Discord" : "§eJoin Discord",
-                    10, 100, 20
-            );
-
-            // Добавляем комментарий к репорту
-            String checkComment = String.format("Called for check by %s. Voice channel: %s", username, channelName);
-            report.setAdminComment(checkComment);
-            plugin.getDataManager().saveReport(report);
-
-            discordBot.updateReportComment(report);
-
-            event.reply(String.format("✅ Player %s has been frozen and notified to join voice channel: %s",
-                            report.getViolatorName(), channelName))
-                    .setEphemeral(true).queue();
+        // Находим игрока на сервере
+        Player violator = Bukkit.getPlayer(report.getViolatorName());
+        if (violator == null || !violator.isOnline()) {
+            reply(event, "❌ Player " + report.getViolatorName() + " is not online!");
+            return;
+        }
+
+        // Замораживаем игрока
+        freezePlayer(violator, true);
+
+        // Отправляем сообщение игроку
+        boolean isRussian = locale.getCurrentLocale().equals("ru-RU");
+        String message = isRussian
+                ? String.format("§c§l[ПРОВЕРКА] §fВы вызваны на проверку администратором!\n§eЗайдите в голосовой канал Discord: §a%s", channelName)
+                : String.format("§c§l[CHECK] §fYou have been called for a check by an administrator!\n§eJoin the Discord voice channel: §a%s", channelName);
+
+        violator.sendMessage(message);
+        violator.sendTitle(
+                isRussian ? "§c§lПРОВЕРКА" : "§c§lCHECK",
+                isRussian ? "§eЗайдите в Discord" : "§eJoin Discord",
+                10, 100, 20
+        );
+
+        // Добавляем комментарий к актуальной версии репорта (вне основного потока: она может читаться с диска)
+        String checkComment = String.format("Called for check by %s. Voice channel: %s", username, channelName);
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            Report commented = plugin.getDataManager().modifyReport(report.getId(),
+                    current -> current.withAdminComment(checkComment));
+            if (commented != null) {
+                discordBot.updateReportComment(commented);
+            }
         });
+
+        reply(event, String.format("✅ Player %s has been frozen and notified to join voice channel: %s",
+                report.getViolatorName(), channelName));
     }
 
     private void freezePlayer(Player player, boolean freeze) {
@@ -316,37 +394,34 @@ public class DiscordButtonListener extends ListenerAdapter {
         String username = event.getUser().getName();
         String userId = event.getUser().getId();
 
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
+        runWithData(event, () -> {
             LocaleManager locale = plugin.getLocaleManager();
-            Report report = plugin.getDataManager().getReport(reportId);
-
-            if (report == null) {
-                event.reply(locale.getRaw("discord.report-not-found")).setEphemeral(true).queue();
+            Report commented = plugin.getDataManager().modifyReport(reportId, current -> current
+                    .withReview(current.getStatus(), username, userId, new Date())
+                    .withAdminComment(comment));
+            if (commented == null) {
+                reply(event, locale.getRaw("discord.report-not-found"));
                 return;
             }
 
-            report.setAdminComment(comment);
-            report.setReviewedBy(username);
-            report.setReviewedById(userId);
-            report.setReviewedAt(new Date());
-            plugin.getDataManager().saveReport(report);
+            discordBot.updateReportComment(commented);
+            notifyPlayerInGame(commented, locale.getRaw("status-pending"));
 
-            discordBot.updateReportComment(report);
-            notifyPlayerInGame(report, locale.getRaw("status-pending"));
-
-            event.reply(locale.getRaw("discord.comment-added").replace("{id}", reportId))
-                    .setEphemeral(true).queue();
+            reply(event, locale.getRaw("discord.comment-added").replace("{id}", reportId));
         });
     }
 
     private void notifyPlayerInGame(Report report, String action) {
-        UUID playerUUID = report.getReporterUUID();
-        Player player = Bukkit.getPlayer(playerUUID);
+        // Обработчики выполняются в потоке JDA, а Bukkit API доступен только из основного потока
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            UUID playerUUID = report.getReporterUUID();
+            Player player = Bukkit.getPlayer(playerUUID);
 
-        if (player != null && player.isOnline()) {
-            player.sendMessage(plugin.getLocaleManager().getMessage("report-reviewed",
-                    "id", report.getId(),
-                    "action", action));
-        }
+            if (player != null && player.isOnline()) {
+                player.sendMessage(plugin.getLocaleManager().getMessage("report-reviewed",
+                        "id", report.getId(),
+                        "action", action));
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.reportsystem.discord;
+
+import com.reportsystem.ReportSystem;
+import com.reportsystem.data.SnapshotFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Жалобы, принятые на сервере, но ещё не опубликованные в Discord.
+ * Список ID хранится в discord-pending.dat и переживает перезапуск. Неудачная отправка
+ * повторяется с экспоненциальной задержкой и случайным разбросом, после переподключения
+ * очередь досылается через DiscordOutbox - по одной жалобе, без всплеска запросов.
+ */
+public class DiscordDeliveryQueue {
+
+    private static final long BASE_DELAY_MS = 2_000;
+    private static final long MAX_DELAY_MS = 5 * 60_000;
+
+    private final ReportSystem plugin;
+    private final SnapshotFile stateFile;
+    private final Consumer<String> resend;
+    private final Set<String> pending = new LinkedHashSet<>();
+    private final Set<String> unconfirmed = new LinkedHashSet<>(); // опубликованы, но ID сообщения ещё не записан
+    private int failures;
+    private boolean retryScheduled;
+    private long retryGeneration; // запланированный повтор с устаревшим номером ничего не делает
+
+    /**
+     * @param resend повторная отправка жалобы по ID (вызывается из асинхронного потока)
+     */
+    public DiscordDeliveryQueue(ReportSystem plugin, Consumer<String> resend) {
+        this.plugin = plugin;
+        this.stateFile = new SnapshotFile(new File(plugin.getDataFolder(), "discord-pending.dat"), 1, plugin.getLogger());
+        this.resend = resend;
+        load();
+    }
+
+    /**
+     * Запоминает жалобу до подтверждения публикации
+     */
+    public synchronized void add(String reportId) {
+        if (pending.add(reportId)) {
+            save();
+        }
+    }
+
+    /**
+     * Жалоба опубликована (или больше не существует) - убирается из очереди.
+     * Из файла она удаляется только после записи жалобы с ID сообщения: иначе после сбоя
+     * жалоба осталась бы без сообщения и без повторной отправки.
+     */
+    public void delivered(String reportId) {
+        synchronized (this) {
+            failures = 0;
+            if (!pending.remove(reportId)) {
+                return;
+            }
+            unconfirmed.add(reportId);
+        }
+        plugin.getDataManager().whenWritten(reportId, () -> confirm(reportId));
+    }
+
+    private synchronized void confirm(String reportId) {
+        if (unconfirmed.remove(reportId)) {
+            save();
+        }
+    }
+
+    /**
+     * Отправка не удалась - повтор всей очереди с нарастающей задержкой
+     */
+    public synchronized void failed(String reportId) {
+        if (retryScheduled) {
+            // Остальные жалобы той же попытки упали по той же причине - задержка растёт один раз за попытку
+            return;
+        }
+        failures++;
+        long delay = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(failures - 1, 20));
+        // Половина задержки фиксирована, половина случайна, чтобы несколько серверов не повторяли одновременно
+        scheduleRetry(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    /**
+     * Discord снова доступен (запуск или переподключение) - досылаем очередь после короткой случайной паузы
+     */
+    public synchronized void resume() {
+        failures = 0;
+        if (!pending.isEmpty()) {
+            // Заменяет уже запланированный повтор, который мог быть отложен на минуты
+            retryScheduled = false;
+            scheduleRetry(ThreadLocalRandom.current().nextLong(BASE_DELAY_MS + 1));
+        }
+    }
+
+    public synchronized boolean contains(String reportId) {
+        return pending.contains(reportId);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    private void scheduleRetry(long delayMs) {
+        if (retryScheduled || !plugin.isEnabled()) {
+            return;
+        }
+        retryScheduled = true;
+        long generation = ++retryGeneration;
+        plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, () -> retry(generation),
+                Math.max(1, delayMs / 50));
+    }
+
+    private void retry(long generation) {
+        List<String> reportIds;
+        synchronized (this) {
+            if (generation != retryGeneration) {
+                return;
+            }
+            retryScheduled = false;
+            reportIds = new ArrayList<>(pending);
+        }
+        for (String reportId : reportIds) {
+            resend.accept(reportId);
+        }
+    }
+
+    private void load() {
+        if (!stateFile.exists()) {
+            return;
+        }
+
+        try {
+            List<String> loaded = stateFile.read(input -> new String(input.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .toList());
+            if (loaded != null) {
+                pending.addAll(loaded);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Ошибка чтения очереди отправки в Discord: " + e.getMessage());
+        }
+
+        if (!pending.isEmpty()) {
+            plugin.getLogger().info("Жалоб, ожидающих отправки в Discord: " + pending.size());
+        }
+    }
+
+    private void save() {
+        Set<String> stored = new LinkedHashSet<>(pending);
+        stored.addAll(unconfirmed);
+        String content = String.join("\n", stored);
+        try {
+            stateFile.write(output -> output.write(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            plugin.getLogger().severe("Ошибка записи очереди отправки в Discord: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.reportsystem.discord;
+
+import com.reportsystem.models.Report;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Очередь запросов к Discord между источниками событий и DiscordBot.
+ * Для каждой жалобы хранится только последнее желаемое состояние: несколько изменений подряд
+ * (проверка, комментарий, решение) превращаются в одну правку сообщения. Новые жалобы отправляются
+ * раньше правок. В канал уходит один запрос за раз - лимит канала всё равно не даёт отправлять быстрее,
+ * а пока запрос выполняется, следующие изменения успевают схлопнуться.
+ */
+public class DiscordOutbox {
+
+    private final DiscordBot bot;
+
+    // Ключ жалобы -> ожидающая отправка, в порядке постановки в очередь
+    private final LinkedHashMap<Long, Entry> posts = new LinkedHashMap<>();
+    private final LinkedHashMap<Long, Entry> edits = new LinkedHashMap<>();
+    private boolean sending;
+    private boolean closed;
+    private CompletableFuture<?> inFlight = CompletableFuture.completedFuture(null);
+
+    // Метрики
+    private long delivered;
+    private long coalesced;
+    private long totalLatencyMs;
+    private long maxLatencyMs;
+
+    private static final class Entry {
+        Report report;
+        final long enqueuedAt; // время первого несхлопнутого изменения - от него считается задержка
+
+        Entry(Report report) {
+            this.report = report;
+            this.enqueuedAt = System.currentTimeMillis();
+        }
+    }
+
+    public DiscordOutbox(DiscordBot bot) {
+        this.bot = bot;
+    }
+
+    /**
+     * Публикация новой жалобы
+     */
+    public void post(Report report) {
+        synchronized (this) {
+            enqueue(posts, report);
+        }
+        drain();
+    }
+
+    /**
+     * Правка сообщения жалобы до состояния report
+     */
+    public void update(Report report) {
+        synchronized (this) {
+            Entry post = posts.get(report.getKey());
+            if (post != null) {
+                // Жалоба ещё не опубликована - сразу опубликуем актуальную версию
+                replace(post, report);
+            } else {
+                enqueue(edits, report);
+            }
+        }
+        drain();
+    }
+
+    private void enqueue(Map<Long, Entry> queue, Report report) {
+        Entry existing = queue.get(report.getKey());
+        if (existing != null) {
+            replace(existing, report);
+        } else {
+            queue.put(report.getKey(), new Entry(report));
+        }
+    }
+
+    private void replace(Entry entry, Report report) {
+        // Ответы приходят из разных потоков, поэтому более старая версия не должна затереть новую
+        if (report.getVersion() >= entry.report.getVersion()) {
+            entry.report = report;
+        }
+        coalesced++;
+    }
+
+    private void drain() {
+        // Цикл, а не рекурсия: без соединения запросы завершаются сразу, и очередь разбирается в этом же потоке
+        while (true) {
+            Entry next;
+            boolean post;
+            synchronized (this) {
+                if (sending || closed) {
+                    return;
+                }
+                next = poll(posts);
+                post = next != null;
+                if (next == null) {
+                    next = poll(edits);
+                }
+                if (next == null) {
+                    return;
+                }
+                sending = true;
+            }
+
+            Entry entry = next;
+            CompletableFuture<?> request;
+            try {
+                request = post ? bot.deliverPost(entry.report) : bot.deliverEdit(entry.report);
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+
+            if (!request.isDone()) {
+                synchronized (this) {
+                    inFlight = request;
+                }
+                request.whenComplete((result, error) -> {
+                    finish(entry);
+                    drain();
+                });
+                return;
+            }
+            finish(entry);
+        }
+    }
+
+    /**
+     * Перестаёт отправлять запросы и ждёт ответа на уже отправленный (при выключении плагина).
+     * Неопубликованные жалобы остаются в очереди доставки и будут отправлены после запуска.
+     */
+    public void close(long timeoutMs) {
+        CompletableFuture<?> request;
+        synchronized (this) {
+            closed = true;
+            request = inFlight;
+        }
+
+        try {
+            request.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Ошибка уже обработана в DiscordBot, а зависший запрос прервёт остановка JDA
+        }
+    }
+
+    private synchronized void finish(Entry entry) {
+        sending = false;
+        long latency = System.currentTimeMillis() - entry.enqueuedAt;
+        delivered++;
+        totalLatencyMs += latency;
+        maxLatencyMs = Math.max(maxLatencyMs, latency);
+    }
+
+    private static Entry poll(LinkedHashMap<Long, Entry> queue) {
+        Iterator<Entry> iterator = queue.values().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Entry entry = iterator.next();
+        iterator.remove();
+        return entry;
+    }
+
+    /**
+     * Число жалоб, ожидающих отправки или правки (включая выполняющийся запрос)
+     */
+    public synchronized int getQueueDepth() {
+        return posts.size() + edits.size() + (sending ? 1 : 0);
+    }
+
+    /**
+     * Средняя задержка от постановки в очередь до ответа Discord, мс
+     */
+    public synchronized long getAverageLatencyMs() {
+        return delivered == 0 ? 0 : totalLatencyMs / delivered;
+    }
+
+    public synchronized long getMaxLatencyMs() {
+        return maxLatencyMs;
+    }
+
+    /**
+     * Сколько изменений было схлопнуто и не потребовало отдельного запроса
+     */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+}
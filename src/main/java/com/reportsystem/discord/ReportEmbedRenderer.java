@@ -0,0 +1,185 @@
+package com.reportsystem.discord;
+
+import com.reportsystem.LocaleManager;
+import com.reportsystem.ReportSystem;
+import com.reportsystem.models.Report;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+
+import java.awt.Color;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * Единый рендерер сообщения о жалобе для отправки и всех обновлений.
+ * Подписи из локали собираются в шаблон один раз (заново - только после смены или перезагрузки локали),
+ * дата форматируется общим потокобезопасным DateTimeFormatter, а описание собирается
+ * в переиспользуемом StringBuilder потока.
+ */
+public class ReportEmbedRenderer {
+
+    private static final String FALLBACK_DATE_FORMAT = "yyyy-MM-dd HH:mm";
+    private static final Color[] STATUS_COLORS = {Color.ORANGE, Color.GREEN, Color.RED}; // по ordinal статуса
+
+    private final ReportSystem plugin;
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(512));
+    private volatile Template template;
+
+    /**
+     * Подписи и формат даты текущей локали
+     */
+    private static final class Template {
+        final int generation;
+        final String titlePrefix;
+        final String reporterLabel;
+        final String violatorLabel;
+        final String violatorUuidLabel;
+        final String reasonLabel;
+        final String commentLabel;
+        final String statusLabel;
+        final String[] statusTexts;
+        final String reviewedByLabel;
+        final String commentLeftByLabel;
+        final String pendingAdminCommentLabel;
+        final String adminCommentLabel;
+        final String footerPrefix;
+        final DateTimeFormatter dateFormatter;
+        final String approveLabel;
+        final String rejectLabel;
+        final String checkLabel;
+        final String commentButtonLabel;
+
+        Template(LocaleManager locale, int generation, DateTimeFormatter dateFormatter) {
+            this.generation = generation;
+            this.titlePrefix = locale.getRaw("discord.new-report-title") + " #";
+            this.reporterLabel = label(locale, "discord.reporter");
+            this.violatorLabel = label(locale, "discord.violator");
+            this.violatorUuidLabel = label(locale, "discord.violator-uuid") + "`";
+            this.reasonLabel = label(locale, "discord.reason");
+            this.commentLabel = label(locale, "discord.comment");
+            this.statusLabel = "\n" + label(locale, "discord.status");
+            this.statusTexts = new String[]{
+                    locale.getRaw("discord.status-pending"),
+                    locale.getRaw("discord.status-approved"),
+                    locale.getRaw("discord.status-rejected")
+            };
+            this.reviewedByLabel = "\n" + label(locale, "discord.reviewed-by");
+            this.commentLeftByLabel = "\n" + label(locale, "discord.comment-left-by");
+            this.pendingAdminCommentLabel = "\n\n**💬 " + locale.getRaw("discord.admin-comment") + ":** ";
+            this.adminCommentLabel = "\n" + label(locale, "discord.admin-comment");
+            this.footerPrefix = locale.getRaw("discord.created") + ": ";
+            this.dateFormatter = dateFormatter;
+            this.approveLabel = locale.getRaw("discord.button-approve");
+            this.rejectLabel = locale.getRaw("discord.button-reject");
+            this.checkLabel = locale.getRaw("discord.button-check");
+            this.commentButtonLabel = locale.getRaw("discord.button-comment");
+        }
+
+        private static String label(LocaleManager locale, String path) {
+            return "**" + locale.getRaw(path) + ":** ";
+        }
+    }
+
+    public ReportEmbedRenderer(ReportSystem plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Сообщение о жалобе в её текущем состоянии: цвет и статус по статусу жалобы,
+     * комментарий администратора и проверяющий - если они есть
+     */
+    public MessageEmbed render(Report report) {
+        Template t = template();
+        Report.ReportStatus status = report.getStatus();
+        boolean pending = status == Report.ReportStatus.PENDING;
+
+        StringBuilder description = buffers.get();
+        description.setLength(0);
+        description.append(t.reporterLabel).append(report.getReporterName()).append("\n\n");
+        description.append(t.violatorLabel).append(report.getViolatorName()).append('\n');
+
+        UUID violatorUUID = report.getViolatorUUID();
+        if (violatorUUID != null) {
+            description.append(t.violatorUuidLabel).append(violatorUUID).append("`\n");
+        }
+
+        description.append(t.reasonLabel).append(report.getReason()).append('\n');
+        description.append(t.commentLabel).append(report.getComment()).append('\n');
+        description.append(t.statusLabel).append(t.statusTexts[status.ordinal()]);
+
+        // Пока жалоба не рассмотрена, проверяющий - это автор комментария
+        String adminComment = report.getAdminComment();
+        if (pending && adminComment != null) {
+            description.append(t.pendingAdminCommentLabel).append(adminComment);
+        }
+        appendReviewer(description, report, pending ? t.commentLeftByLabel : t.reviewedByLabel);
+        if (!pending && adminComment != null) {
+            description.append(t.adminCommentLabel).append(adminComment);
+        }
+
+        long createdAt = report.getCreatedAtMillis();
+        StringBuilder footer = new StringBuilder(t.footerPrefix.length() + 20).append(t.footerPrefix);
+        t.dateFormatter.formatTo(Instant.ofEpochMilli(createdAt), footer);
+
+        return new EmbedBuilder()
+                .setTitle(t.titlePrefix + report.getId())
+                .setColor(STATUS_COLORS[status.ordinal()])
+                .setDescription(description)
+                .setFooter(footer.toString())
+                .setTimestamp(Instant.ofEpochMilli(createdAt))
+                .build();
+    }
+
+    /**
+     * Кнопки модерации; после рассмотрения они неактивны
+     */
+    public ActionRow buttons(Report report) {
+        Template t = template();
+        String id = report.getId();
+        boolean disabled = report.getStatus() != Report.ReportStatus.PENDING;
+
+        return ActionRow.of(
+                Button.success("approve_" + id, t.approveLabel).withDisabled(disabled),
+                Button.danger("reject_" + id, t.rejectLabel).withDisabled(disabled),
+                Button.secondary("check_" + id, t.checkLabel).withDisabled(disabled),
+                Button.primary("comment_" + id, t.commentButtonLabel).withDisabled(disabled)
+        );
+    }
+
+    private static void appendReviewer(StringBuilder description, Report report, String label) {
+        if (report.getReviewedById() != null) {
+            description.append(label).append("<@").append(report.getReviewedById()).append('>');
+        } else if (report.getReviewedBy() != null) {
+            description.append(label).append(report.getReviewedBy());
+        }
+    }
+
+    /**
+     * Шаблон текущей локали; пересобирается, только если локаль сменилась или была перезагружена
+     */
+    private Template template() {
+        LocaleManager locale = plugin.getLocaleManager();
+        Template current = template;
+        if (current != null && current.generation == locale.getGeneration()) {
+            return current;
+        }
+
+        Template compiled = new Template(locale, locale.getGeneration(), dateFormatter(locale.getRaw("date-format")));
+        template = compiled;
+        return compiled;
+    }
+
+    private DateTimeFormatter dateFormatter(String pattern) {
+        try {
+            return DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Неверный date-format \"" + pattern + "\" в локали, используется "
+                    + FALLBACK_DATE_FORMAT);
+            return DateTimeFormatter.ofPattern(FALLBACK_DATE_FORMAT).withZone(ZoneId.systemDefault());
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.reportsystem.gui;
 
 import com.reportsystem.LocaleManager;
 import com.reportsystem.ReportSystem;
+import com.reportsystem.data.ReportPage;
+import com.reportsystem.data.ReportQuery;
 import com.reportsystem.models.Report;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -15,28 +17,72 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public class ReportsGUI {
 
     private final ReportSystem plugin;
     private static final int REPORTS_PER_PAGE = 18;
+    // Курсоры страниц каждого игрока: элемент N - курсор начала страницы N+1
+    private final Map<UUID, List<String>> pageCursors;
 
     public ReportsGUI(ReportSystem plugin) {
         this.plugin = plugin;
+        this.pageCursors = new HashMap<>();
     }
 
     public void openGUI(Player player, int page) {
-        List<Report> reports = plugin.getDataManager().getPlayerReports(player.getUniqueId());
+        UUID playerUUID = player.getUniqueId();
+
+        // Переход возможен только на соседние страницы, курсор которых уже известен
+        List<String> cursors = pageCursors.computeIfAbsent(playerUUID, k -> new ArrayList<>());
+        if (page <= 1 || page > cursors.size()) {
+            cursors.clear();
+            cursors.add(null);
+            page = 1;
+        }
+
+        int requestedPage = page;
+        plugin.getDataManager().queryReports(ReportQuery.byReporter(playerUUID)
+                .pageSize(REPORTS_PER_PAGE)
+                .after(cursors.get(page - 1)), reportPage -> {
+            // Страница загружается асинхронно - игрок мог выйти за это время
+            if (player.isOnline()) {
+                showPage(player, requestedPage, reportPage);
+            }
+        });
+    }
+
+    private void showPage(Player player, int page, ReportPage reportPage) {
+        UUID playerUUID = player.getUniqueId();
         LocaleManager locale = plugin.getLocaleManager();
+        List<String> cursors = pageCursors.computeIfAbsent(playerUUID, k -> new ArrayList<>());
+        List<Report> reports = reportPage.getReports();
 
         if (reports.isEmpty()) {
+            if (page > 1) {
+                // Страница опустела (например, после переноса в архив) - начинаем сначала
+                openGUI(player, 1);
+                return;
+            }
+            pageCursors.remove(playerUUID);
             player.sendMessage(locale.getMessage("no-reports"));
             return;
         }
 
-        int maxPage = (int) Math.ceil((double) reports.size() / REPORTS_PER_PAGE);
-        page = Math.max(1, Math.min(page, maxPage));
+        // Запоминаем курсор следующей страницы
+        while (cursors.size() > page) {
+            cursors.remove(cursors.size() - 1);
+        }
+        if (reportPage.hasNext()) {
+            cursors.add(reportPage.getNextCursor());
+        }
+
+        int maxPage = Math.max(page + (reportPage.hasNext() ? 1 : 0),
+                (int) Math.ceil((double) reportPage.getTotal() / REPORTS_PER_PAGE));
 
         // Получаем локализованный заголовок
         String titleKey = locale.getCurrentLocale().equals("ru-RU") ?
@@ -49,19 +95,22 @@ public class ReportsGUI {
                         .decorate(TextDecoration.BOLD));
 
         // Добавляем репорты
-        int startIndex = (page - 1) * REPORTS_PER_PAGE;
-        int endIndex = Math.min(startIndex + REPORTS_PER_PAGE, reports.size());
-
-        for (int i = startIndex; i < endIndex; i++) {
-            Report report = reports.get(i);
+        for (Report report : reports) {
             ItemStack item = createReportItem(report);
             gui.addItem(item);
         }
 
-        addNavigationButtons(gui, page, maxPage, player);
+        addNavigationButtons(gui, page, maxPage, reportPage.hasNext(), player);
         player.openInventory(gui);
     }
 
+    /**
+     * Забывает курсоры страниц игрока (при выходе с сервера)
+     */
+    public void clearPlayer(UUID playerUUID) {
+        pageCursors.remove(playerUUID);
+    }
+
     private ItemStack createReportItem(Report report) {
         LocaleManager locale = plugin.getLocaleManager();
         boolean isRussian = locale.getCurrentLocale().equals("ru-RU");
@@ -182,7 +231,7 @@ public class ReportsGUI {
         return item;
     }
 
-    private void addNavigationButtons(Inventory gui, int page, int maxPage, Player player) {
+    private void addNavigationButtons(Inventory gui, int page, int maxPage, boolean hasNext, Player player) {
         LocaleManager locale = plugin.getLocaleManager();
         boolean isRussian = locale.getCurrentLocale().equals("ru-RU");
 
@@ -204,21 +253,21 @@ public class ReportsGUI {
                 .color(NamedTextColor.GRAY)
                 .decoration(TextDecoration.ITALIC, false));
 
-        var stats = plugin.getDataManager().getPlayerStatistics(player.getUniqueId());
+        var dataManager = plugin.getDataManager();
         infoLore.add(Component.empty());
 
         String approvedLabel = isRussian ? "✓ Одобрено: " : "✓ Approved: ";
-        infoLore.add(Component.text(approvedLabel + stats.getOrDefault(Report.ReportStatus.APPROVED, 0))
+        infoLore.add(Component.text(approvedLabel + dataManager.getPlayerReportCount(player.getUniqueId(), Report.ReportStatus.APPROVED))
                 .color(NamedTextColor.GREEN)
                 .decoration(TextDecoration.ITALIC, false));
 
         String rejectedLabel = isRussian ? "✗ Отклонено: " : "✗ Rejected: ";
-        infoLore.add(Component.text(rejectedLabel + stats.getOrDefault(Report.ReportStatus.REJECTED, 0))
+        infoLore.add(Component.text(rejectedLabel + dataManager.getPlayerReportCount(player.getUniqueId(), Report.ReportStatus.REJECTED))
                 .color(NamedTextColor.RED)
                 .decoration(TextDecoration.ITALIC, false));
 
         String pendingLabel = isRussian ? "⏳ На рассмотрении: " : "⏳ Pending: ";
-        infoLore.add(Component.text(pendingLabel + stats.getOrDefault(Report.ReportStatus.PENDING, 0))
+        infoLore.add(Component.text(pendingLabel + dataManager.getPlayerReportCount(player.getUniqueId(), Report.ReportStatus.PENDING))
                 .color(NamedTextColor.YELLOW)
                 .decoration(TextDecoration.ITALIC, false));
 
@@ -263,7 +312,7 @@ public class ReportsGUI {
         gui.setItem(31, refreshButton);
 
         // Следующая страница
-        if (page < maxPage) {
+        if (hasNext) {
             ItemStack nextButton = new ItemStack(Material.ARROW);
             ItemMeta meta = nextButton.getItemMeta();
             String nextText = isRussian ? "Следующая страница →" : "Next page →";
@@ -8,6 +8,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 public class ChatListener implements Listener {
@@ -39,6 +40,12 @@ public class ChatListener implements Listener {
         });
     }
 
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Жалобы игрока подгружаются заранее, чтобы /reports открывался без обращения к диску
+        plugin.getDataManager().prefetchPlayer(event.getPlayer().getUniqueId());
+    }
+
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         // Удаляем сессию при выходе игрока
@@ -46,5 +53,8 @@ public class ChatListener implements Listener {
         if (plugin.getReportManager().hasActiveSession(player.getUniqueId())) {
             plugin.getReportManager().cancelSession(player.getUniqueId());
         }
+
+        // Курсоры страниц GUI больше не нужны
+        plugin.getReportsGUI().clearPlayer(player.getUniqueId());
     }
 }
\ No newline at end of file
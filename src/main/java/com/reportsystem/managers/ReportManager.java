@@ -19,12 +19,10 @@ public class ReportManager {
 
     private final ReportSystem plugin;
     private final Map<UUID, ReportSession> activeSessions;
-    private int reportCounter;
 
     public ReportManager(ReportSystem plugin) {
         this.plugin = plugin;
         this.activeSessions = new ConcurrentHashMap<>();
-        this.reportCounter = 0;
     }
 
     public boolean hasActiveSession(UUID playerUUID) {
@@ -36,8 +34,9 @@ public class ReportManager {
     }
 
     public void startSession(Player player) {
-        // Проверяем доступность Discord бота
-        if (plugin.getDiscordBot() == null || !plugin.getDiscordBot().isConnected()) {
+        // Без настроенного Discord бота жалобы некому рассматривать. Временная недоступность Discord
+        // не мешает: жалоба сохранится и будет отправлена после переподключения
+        if (plugin.getDiscordBot() == null) {
             player.sendMessage(plugin.getLocaleManager().getMessage("report-system-unavailable"));
             return;
         }
@@ -192,8 +191,8 @@ public class ReportManager {
         }
 
         if (confirmed) {
-            // Проверяем доступность Discord бота
-            if (plugin.getDiscordBot() == null || !plugin.getDiscordBot().isConnected()) {
+            // Проверяем, что Discord бот настроен (подключение не требуется)
+            if (plugin.getDiscordBot() == null) {
                 player.sendMessage(plugin.getLocaleManager().getMessage("report-system-unavailable"));
                 cancelSession(uuid);
                 return;
@@ -216,7 +215,7 @@ public class ReportManager {
             // Сохраняем
             plugin.getDataManager().saveReport(report);
 
-            // Отправляем в Discord через бота
+            // Отправляем в Discord через бота; при недоступности Discord жалоба ждёт в очереди доставки
             plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
                 try {
                     plugin.getDiscordBot().sendReport(report);
@@ -268,8 +267,7 @@ public class ReportManager {
     }
 
     private String generateReportId() {
-        reportCounter++;
-        return String.format("REP-%d-%d", System.currentTimeMillis() / 1000, reportCounter);
+        return plugin.getDataManager().nextReportId();
     }
 
     public boolean canCreateReport(Player player) {
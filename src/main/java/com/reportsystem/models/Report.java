@@ -1,23 +1,43 @@
 package com.reportsystem.models;
 
+import com.reportsystem.utils.ReportIds;
+import com.reportsystem.utils.StringPool;
+import com.reportsystem.utils.TextArena;
+
 import java.util.Date;
 import java.util.UUID;
 
-public class Report {
+/**
+ * Неизменяемый снимок жалобы. Изменение создаёт новую версию (with*), которая
+ * заменяет текущую в DataManager через compare-and-swap, поэтому читатели из любых потоков
+ * всегда видят согласованное состояние без блокировок.
+ */
+public final class Report {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final ReportStatus[] STATUSES = ReportStatus.values();
 
+    // Компактное представление: UUID как пары long, даты как epoch millis,
+    // статус как ordinal, повторяющиеся строки через StringPool, длинные тексты - через TextArena
     private final String id;
-    private final UUID reporterUUID;
+    private final long key; // 64-битный ключ для внутренних индексов (см. ReportIds)
+    private final long reporterMost;
+    private final long reporterLeast;
+    private final long violatorMost;
+    private final long violatorLeast;
+    private final boolean hasViolatorUUID; // UUID нарушителя может отсутствовать в offline-mode
     private final String reporterName;
     private final String violatorName;
-    private final UUID violatorUUID; // UUID нарушителя (может быть null в offline-mode)
-    private final String reason;
-    private final String comment;
-    private final Date createdAt;
-    private ReportStatus status;
-    private String adminComment;
-    private String reviewedBy;
-    private String reviewedById; // Discord ID проверяющего для упоминания
-    private Date reviewedAt;
+    private final CharSequence reason;
+    private final CharSequence comment;
+    private final long createdAt;
+    private final int version; // растёт с каждым изменением, 0 - только что создана или загружена
+    private final byte status;
+    private final CharSequence adminComment;
+    private final String reviewedBy;
+    private final String reviewedById; // Discord ID проверяющего для упоминания
+    private final long reviewedAt;
+    private final long discordMessageId; // сообщение жалобы в Discord-канале, 0 - ещё не отправлена
 
     // Конструктор без UUID (обратная совместимость)
     public Report(String id, UUID reporterUUID, String reporterName, String violatorName,
@@ -28,15 +48,102 @@ public class Report {
     // Основной конструктор
     public Report(String id, UUID reporterUUID, String reporterName, String violatorName,
                   UUID violatorUUID, String reason, String comment) {
+        this(id, reporterUUID, reporterName, violatorName, violatorUUID, reason, comment, new Date());
+    }
+
+    // Конструктор с датой создания (загрузка из хранилища)
+    public Report(String id, UUID reporterUUID, String reporterName, String violatorName,
+                  UUID violatorUUID, String reason, String comment, Date createdAt) {
+        this(id, reporterUUID, reporterName, violatorName, violatorUUID, reason, comment, createdAt.getTime());
+    }
+
+    // Конструктор с датой создания в epoch millis
+    public Report(String id, UUID reporterUUID, String reporterName, String violatorName,
+                  UUID violatorUUID, String reason, String comment, long createdAt) {
         this.id = id;
-        this.reporterUUID = reporterUUID;
-        this.reporterName = reporterName;
-        this.violatorName = violatorName;
-        this.violatorUUID = violatorUUID;
-        this.reason = reason;
-        this.comment = comment;
-        this.createdAt = new Date();
-        this.status = ReportStatus.PENDING;
+        this.key = ReportIds.toKey(id);
+        this.reporterMost = reporterUUID.getMostSignificantBits();
+        this.reporterLeast = reporterUUID.getLeastSignificantBits();
+        this.hasViolatorUUID = violatorUUID != null;
+        this.violatorMost = hasViolatorUUID ? violatorUUID.getMostSignificantBits() : 0L;
+        this.violatorLeast = hasViolatorUUID ? violatorUUID.getLeastSignificantBits() : 0L;
+        this.reporterName = StringPool.intern(reporterName);
+        this.violatorName = StringPool.intern(violatorName);
+        this.reason = StringPool.isPoolable(reason) ? StringPool.intern(reason) : TextArena.store(reason);
+        this.comment = TextArena.store(comment);
+        this.createdAt = createdAt;
+        this.version = 0;
+        this.status = (byte) ReportStatus.PENDING.ordinal();
+        this.adminComment = null;
+        this.reviewedBy = null;
+        this.reviewedById = null;
+        this.reviewedAt = NO_TIME;
+        this.discordMessageId = 0L;
+    }
+
+    /**
+     * Копия с новым состоянием рассмотрения; неизменяемые поля и тексты переиспользуются
+     */
+    private Report(Report base, int version, ReportStatus status, CharSequence adminComment,
+                   String reviewedBy, String reviewedById, long reviewedAt, long discordMessageId) {
+        this.id = base.id;
+        this.key = base.key;
+        this.reporterMost = base.reporterMost;
+        this.reporterLeast = base.reporterLeast;
+        this.violatorMost = base.violatorMost;
+        this.violatorLeast = base.violatorLeast;
+        this.hasViolatorUUID = base.hasViolatorUUID;
+        this.reporterName = base.reporterName;
+        this.violatorName = base.violatorName;
+        this.reason = base.reason;
+        this.comment = base.comment;
+        this.createdAt = base.createdAt;
+        this.version = version;
+        this.status = (byte) status.ordinal();
+        this.adminComment = adminComment;
+        this.reviewedBy = StringPool.intern(reviewedBy);
+        this.reviewedById = StringPool.intern(reviewedById);
+        this.reviewedAt = reviewedAt;
+        this.discordMessageId = discordMessageId;
+    }
+
+    /**
+     * Состояние, прочитанное из хранилища
+     *
+     * @param version сохранённая версия (0, если хранилище версии не хранит)
+     * @param discordMessageId сохранённый ID сообщения в Discord или 0
+     */
+    public Report restore(int version, ReportStatus status, String adminComment, String reviewedBy,
+                          String reviewedById, Date reviewedAt, long discordMessageId) {
+        return new Report(this, version, status, TextArena.store(adminComment), reviewedBy, reviewedById,
+                reviewedAt != null ? reviewedAt.getTime() : NO_TIME, discordMessageId);
+    }
+
+    /**
+     * Новая версия с решением модератора
+     */
+    public Report withReview(ReportStatus status, String reviewedBy, String reviewedById, Date reviewedAt) {
+        return new Report(this, version + 1, status, adminComment, reviewedBy, reviewedById,
+                reviewedAt != null ? reviewedAt.getTime() : NO_TIME, discordMessageId);
+    }
+
+    /**
+     * Новая версия с комментарием администратора
+     */
+    public Report withAdminComment(String adminComment) {
+        return new Report(this, version + 1, getStatus(), TextArena.store(adminComment),
+                reviewedBy, reviewedById, reviewedAt, discordMessageId);
+    }
+
+    /**
+     * Новая версия со ссылкой на сообщение в Discord; та же ссылка версию не меняет
+     */
+    public Report withDiscordMessageId(long messageId) {
+        if (messageId == discordMessageId) {
+            return this;
+        }
+        return new Report(this, version + 1, getStatus(), adminComment, reviewedBy, reviewedById, reviewedAt,
+                messageId);
     }
 
     // Геттеры
@@ -44,8 +151,16 @@ public class Report {
         return id;
     }
 
+    public long getKey() {
+        return key;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
     public UUID getReporterUUID() {
-        return reporterUUID;
+        return new UUID(reporterMost, reporterLeast);
     }
 
     public String getReporterName() {
@@ -57,59 +172,58 @@ public class Report {
     }
 
     public UUID getViolatorUUID() {
-        return violatorUUID;
+        return hasViolatorUUID ? new UUID(violatorMost, violatorLeast) : null;
     }
 
     public String getReason() {
-        return reason;
+        return TextArena.toString(reason);
     }
 
     public String getComment() {
-        return comment;
+        return TextArena.toString(comment);
     }
 
     public Date getCreatedAt() {
-        return createdAt;
+        return new Date(createdAt);
     }
 
-    public ReportStatus getStatus() {
-        return status;
+    public long getCreatedAtMillis() {
+        return createdAt;
     }
 
-    public void setStatus(ReportStatus status) {
-        this.status = status;
+    /**
+     * Сравнение отправителя без создания объекта UUID
+     */
+    public boolean isReporter(UUID playerUUID) {
+        return playerUUID.getMostSignificantBits() == reporterMost
+                && playerUUID.getLeastSignificantBits() == reporterLeast;
     }
 
-    public String getAdminComment() {
-        return adminComment;
+    public ReportStatus getStatus() {
+        return STATUSES[status];
     }
 
-    public void setAdminComment(String adminComment) {
-        this.adminComment = adminComment;
+    public String getAdminComment() {
+        return TextArena.toString(adminComment);
     }
 
     public String getReviewedBy() {
         return reviewedBy;
     }
 
-    public void setReviewedBy(String reviewedBy) {
-        this.reviewedBy = reviewedBy;
-    }
-
     public String getReviewedById() {
         return reviewedById;
     }
 
-    public void setReviewedById(String reviewedById) {
-        this.reviewedById = reviewedById;
-    }
-
     public Date getReviewedAt() {
-        return reviewedAt;
+        return reviewedAt != NO_TIME ? new Date(reviewedAt) : null;
     }
 
-    public void setReviewedAt(Date reviewedAt) {
-        this.reviewedAt = reviewedAt;
+    /**
+     * ID сообщения жалобы в Discord-канале, 0 - неизвестен
+     */
+    public long getDiscordMessageId() {
+        return discordMessageId;
     }
 
     public enum ReportStatus {
@@ -0,0 +1,84 @@
+package com.reportsystem.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Преобразование ID жалоб между строковым видом и 64-битным ключом.
+ * Новые ID: "REP-" + ключ в base36 (ключ положительный, выдаётся ReportIdAllocator).
+ * Старые ID вида "REP-<секунды>-<счётчик>" однозначно отображаются в отрицательные ключи,
+ * поэтому никогда не пересекаются с новыми.
+ */
+public class ReportIds {
+
+    public static final String PREFIX = "REP-";
+
+    // Раскладка новых ключей (см. ReportIdAllocator): миллисекунды от EPOCH в старших разрядах
+    public static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    public static final int TIME_SHIFT = 22;
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    private static final int LEGACY_SEQUENCE_BITS = 12;
+    private static final long LEGACY_SEQUENCE_MASK = (1L << LEGACY_SEQUENCE_BITS) - 1;
+    // Нестандартные ID (не должны встречаться) - отдельный диапазон отрицательных ключей по CRC32
+    private static final long FOREIGN_BASE = -(1L << 62);
+
+    /**
+     * Отображаемый ID жалобы по ключу
+     */
+    public static String format(long key) {
+        return PREFIX + Long.toString(key, 36).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Ключ жалобы по её ID. Для одного и того же ID всегда возвращает одно и то же значение.
+     */
+    public static long toKey(String id) {
+        if (id.startsWith(PREFIX)) {
+            String body = id.substring(PREFIX.length());
+            int separator = body.indexOf('-');
+            try {
+                if (separator < 0) {
+                    long key = Long.parseLong(body, 36);
+                    if (key > 0) {
+                        return key;
+                    }
+                } else {
+                    return legacyKey(Long.parseLong(body.substring(0, separator)),
+                            Long.parseLong(body.substring(separator + 1)));
+                }
+            } catch (NumberFormatException ignored) {
+                // Падаем в общий случай
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(id.getBytes(StandardCharsets.UTF_8));
+        return FOREIGN_BASE - crc.getValue() - 1;
+    }
+
+    /**
+     * Время создания, закодированное в ключе (epoch millis), или UNKNOWN_TIME для нестандартных ID.
+     * Новый ключ может опережать дату создания жалобы на срок аренды генератора (до минуты).
+     */
+    public static long createdAtOf(long key) {
+        if (key > 0) {
+            return (key >>> TIME_SHIFT) + EPOCH;
+        }
+        if (key >= FOREIGN_BASE) {
+            return (-key - 1) >>> LEGACY_SEQUENCE_BITS;
+        }
+        return UNKNOWN_TIME;
+    }
+
+    /**
+     * Старые ID: счётчик сбрасывался при перезапуске, но секунда создания различалась.
+     * Миллисекунда внутри секунды берётся из старших разрядов счётчика, младшие 12 бит - из остатка,
+     * так что отображение взаимно однозначно для счётчика меньше 4 096 000.
+     */
+    private static long legacyKey(long epochSeconds, long counter) {
+        long millis = epochSeconds * 1000 + (counter >>> LEGACY_SEQUENCE_BITS);
+        return -((millis << LEGACY_SEQUENCE_BITS | (counter & LEGACY_SEQUENCE_MASK)) + 1);
+    }
+}
@@ -0,0 +1,49 @@
+package com.reportsystem.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь повторяющихся строк (ники игроков, причины жалоб).
+ * Тысячи жалоб на одного нарушителя ссылаются на один и тот же экземпляр строки.
+ */
+public class StringPool {
+
+    // Длинные строки почти никогда не повторяются - их не храним
+    private static final int MAX_LENGTH = 64;
+    // Защита от бесконечного роста: после заполнения строки возвращаются как есть
+    private static final int MAX_SIZE = 200_000;
+
+    private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+    /**
+     * Возвращает общий экземпляр строки
+     */
+    public static String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+
+        String pooled = POOL.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+
+        if (POOL.size() >= MAX_SIZE) {
+            return value;
+        }
+
+        pooled = POOL.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * Достаточно ли строка коротка, чтобы храниться в словаре
+     */
+    public static boolean isPoolable(String value) {
+        return value == null || value.length() <= MAX_LENGTH;
+    }
+
+    public static int size() {
+        return POOL.size();
+    }
+}
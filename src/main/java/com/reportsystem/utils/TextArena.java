@@ -0,0 +1,277 @@
+package com.reportsystem.utils;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Хранилище длинных текстов жалоб (причина, комментарии) вне кучи.
+ * Текст кодируется в UTF-8 и дописывается в direct-буферы по 256 КБ; в куче остаётся
+ * только маленькая ссылка (сегмент, смещение, длина), а строка собирается при обращении.
+ * Для каждого сегмента учитываются живые байты: недостижимые тексты обнаруживаются через слабые ссылки.
+ * Слабая ссылка одновременно хранит положение текста и служит звеном списка текстов сегмента,
+ * поэтому в куче на текст приходится два небольших объекта.
+ * Сегмент без живых текстов отпускается сборщику мусора, а почти пустой заполненный сегмент уплотняется -
+ * его живые тексты переносятся в текущий сегмент, чтобы одна строка не удерживала 256 КБ.
+ */
+public class TextArena {
+
+    private static final int SEGMENT_SIZE = 256 * 1024;
+    // Короткие строки дешевле хранить в куче, чем ссылку на буфер
+    private static final int MIN_LENGTH = 32;
+    // Заполненный сегмент уплотняется, когда живых данных в нём меньше четверти
+    private static final int COMPACT_DIVISOR = 4;
+
+    private static volatile boolean enabled;
+    private static Segment current;
+    private static final List<Segment> sealed = new ArrayList<>(); // заполненные сегменты с живыми текстами
+    private static final ReferenceQueue<OffHeapText> collected = new ReferenceQueue<>();
+    private static final AtomicLong allocatedBytes = new AtomicLong();
+
+    /**
+     * Сегмент direct-памяти. Поля изменяются только под блокировкой TextArena.
+     */
+    private static final class Segment {
+        final ByteBuffer buffer;
+        final boolean dedicated; // отдельный буфер одного длинного текста
+        TextRef head; // список живых текстов сегмента
+        int position;
+        int liveBytes;
+
+        Segment(int capacity, boolean dedicated) {
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+            this.dedicated = dedicated;
+            allocatedBytes.addAndGet(capacity);
+        }
+    }
+
+    /**
+     * Положение текста в сегменте и слабая ссылка на него: попадает в очередь, когда текст
+     * больше никому не нужен. При уплотнении текст получает новую ссылку, а старая очищается.
+     */
+    private static final class TextRef extends WeakReference<OffHeapText> {
+        final Segment segment;
+        final int offset;
+        final int length; // в байтах
+        // Звенья списка живых текстов сегмента, изменяются только под блокировкой TextArena
+        TextRef prev;
+        TextRef next;
+        boolean linked;
+
+        TextRef(OffHeapText text, Segment segment, int offset, int length) {
+            super(text, collected);
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Включает или выключает хранение вне кучи для новых строк (уже сохранённые не переносятся)
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Возвращает текст для хранения в модели: саму строку или ссылку на копию вне кучи
+     */
+    public static CharSequence store(String value) {
+        if (!enabled || value == null || value.length() < MIN_LENGTH) {
+            return value;
+        }
+        return allocate(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String toString(CharSequence value) {
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Объём direct-памяти, занятой сегментами с текстами
+     */
+    public static long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Отпускает сегменты, все тексты которых уже не нужны, и уплотняет почти пустые
+     * (например, после переноса жалоб в архив)
+     */
+    public static synchronized void reclaim() {
+        expunge();
+        compact();
+    }
+
+    /**
+     * Снимает текст с учёта так, как если бы его собрал сборщик мусора. Для тестов: освобождение
+     * сегментов проверяется без ожидания System.gc().
+     */
+    static void expire(CharSequence value) {
+        if (value instanceof OffHeapText text) {
+            text.slot.enqueue();
+        }
+    }
+
+    private static synchronized OffHeapText allocate(byte[] bytes) {
+        expunge();
+
+        if (bytes.length > SEGMENT_SIZE / 4) {
+            // Очень длинный текст - в отдельный буфер, чтобы не тратить остаток сегмента
+            Segment own = new Segment(bytes.length, true);
+            sealed.add(own);
+            return place(own, bytes, null);
+        }
+
+        if (current == null || current.position + bytes.length > SEGMENT_SIZE) {
+            roll();
+            // Раз на сегмент - уплотнение накопившихся почти пустых сегментов
+            compact();
+        }
+        return place(current, bytes, null);
+    }
+
+    /**
+     * Записывает текст в сегмент и регистрирует его (text == null - новый текст, иначе перенос)
+     */
+    private static OffHeapText place(Segment segment, byte[] bytes, OffHeapText text) {
+        int offset = segment.position;
+        segment.buffer.put(offset, bytes);
+        segment.position += bytes.length;
+        segment.liveBytes += bytes.length;
+
+        if (text == null) {
+            text = new OffHeapText();
+        }
+        TextRef ref = new TextRef(text, segment, offset, bytes.length);
+        ref.next = segment.head;
+        if (segment.head != null) {
+            segment.head.prev = ref;
+        }
+        segment.head = ref;
+        ref.linked = true;
+        text.slot = ref;
+        return text;
+    }
+
+    /**
+     * Убирает текст из списка сегмента и из его живых байтов
+     *
+     * @return false, если текст уже снят с учёта
+     */
+    private static boolean unlink(TextRef ref) {
+        if (!ref.linked) {
+            return false;
+        }
+        if (ref.prev != null) {
+            ref.prev.next = ref.next;
+        } else {
+            ref.segment.head = ref.next;
+        }
+        if (ref.next != null) {
+            ref.next.prev = ref.prev;
+        }
+        ref.prev = null;
+        ref.next = null;
+        ref.linked = false;
+        ref.segment.liveBytes -= ref.length;
+        return true;
+    }
+
+    private static void roll() {
+        if (current != null) {
+            sealed.add(current);
+        }
+        current = new Segment(SEGMENT_SIZE, false);
+    }
+
+    /**
+     * Снимает с учёта тексты, собранные сборщиком мусора
+     */
+    private static void expunge() {
+        Reference<? extends OffHeapText> reference;
+        while ((reference = collected.poll()) != null) {
+            TextRef ref = (TextRef) reference;
+            if (unlink(ref)) {
+                releaseIfEmpty(ref.segment);
+            }
+        }
+    }
+
+    private static void releaseIfEmpty(Segment segment) {
+        if (segment != current && segment.head == null && sealed.remove(segment)) {
+            // Буфер освободит сборщик мусора: на сегмент больше ничто не ссылается
+            allocatedBytes.addAndGet(-segment.buffer.capacity());
+        }
+    }
+
+    /**
+     * Переносит живые тексты из заполненных сегментов, занятых меньше чем на четверть, в текущий сегмент
+     */
+    private static void compact() {
+        List<Segment> sparse = new ArrayList<>();
+        for (Segment segment : sealed) {
+            if (!segment.dedicated && segment.liveBytes * COMPACT_DIVISOR < segment.buffer.capacity()) {
+                sparse.add(segment);
+            }
+        }
+
+        for (Segment segment : sparse) {
+            while (segment.head != null) {
+                TextRef ref = segment.head;
+                unlink(ref); // старая ссылка больше не учитывается, даже если уже стоит в очереди
+
+                OffHeapText text = ref.get();
+                ref.clear();
+                if (text == null) {
+                    continue;
+                }
+
+                byte[] bytes = new byte[ref.length];
+                segment.buffer.get(ref.offset, bytes);
+                if (current == null || current.position + bytes.length > SEGMENT_SIZE) {
+                    roll();
+                }
+                place(current, bytes, text);
+            }
+            releaseIfEmpty(segment);
+        }
+    }
+
+    /**
+     * Ссылка на UTF-8 текст в сегменте. Буфер читается только абсолютными методами, а положение
+     * заменяется целиком, поэтому одна ссылка безопасна для нескольких потоков и при уплотнении.
+     */
+    private static final class OffHeapText implements CharSequence {
+
+        private volatile TextRef slot;
+
+        @Override
+        public String toString() {
+            TextRef current = slot;
+            byte[] bytes = new byte[current.length];
+            current.segment.buffer.get(current.offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int length() {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.reportsystem.utils.ReportIds;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryReportCodecTest {
+
+    @Test
+    void roundTripKeepsAllFields() throws IOException {
+        Report pending = new Report(ReportIds.format(1001), UUID.randomUUID(), "Steve", "Griefer", null,
+                "Гриф базы", "", 1_700_000_000_000L);
+        Report reviewed = new Report("REP-1700000000-7", UUID.randomUUID(), "Alex", "Cheater", UUID.randomUUID(),
+                "fly", "видел на спавне", 1_700_000_500_000L)
+                .withReview(Report.ReportStatus.APPROVED, "Admin", "42", new Date(1_700_000_900_000L))
+                .withAdminComment("Punishment: ban")
+                .withDiscordMessageId(1234567890123456789L);
+        // null должен остаться null, а не превратиться в пустую строку
+        Report sparse = new Report(ReportIds.format(1002), UUID.randomUUID(), null, null, null,
+                null, null, 1_700_000_600_000L)
+                .withReview(Report.ReportStatus.REJECTED, null, null, null);
+
+        Map<String, Report> loaded = BinaryReportCodec.read(new ByteArrayInputStream(encode(pending, reviewed, sparse)));
+
+        assertEquals(3, loaded.size());
+        assertSameReport(pending, loaded.get(pending.getId()));
+        assertSameReport(reviewed, loaded.get(reviewed.getId()));
+        assertSameReport(sparse, loaded.get(sparse.getId()));
+        assertNull(loaded.get(sparse.getId()).getComment());
+        assertNull(loaded.get(sparse.getId()).getAdminComment());
+        assertEquals("", loaded.get(pending.getId()).getComment());
+    }
+
+    /**
+     * Версия 1 отличается от текущей только отсутствием ID сообщения в Discord и отметок null:
+     * файл без этих полей с номером версии 1 должен читаться как раньше
+     */
+    @Test
+    void readsVersionOneSnapshots() throws IOException {
+        Report report = new Report(ReportIds.format(2002), UUID.randomUUID(), "Steve", "Griefer", UUID.randomUUID(),
+                "reason", "comment", 1_700_000_000_000L)
+                .withReview(Report.ReportStatus.REJECTED, "Admin", "42", new Date(1_700_000_100_000L));
+
+        byte[] data = encode(report);
+        setVersion(data, 1);
+
+        Report loaded = BinaryReportCodec.read(new ByteArrayInputStream(data)).get(report.getId());
+        assertSameReport(report, loaded);
+        assertEquals(0, loaded.getDiscordMessageId());
+    }
+
+    @Test
+    void rejectsUnknownVersion() throws IOException {
+        byte[] data = encode(new Report(ReportIds.format(3003), UUID.randomUUID(), "a", "b", null,
+                "r", "c", 1_700_000_000_000L));
+        setVersion(data, 4);
+
+        assertThrows(IOException.class, () -> BinaryReportCodec.read(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    void rejectsForeignFiles() {
+        byte[] data = "{\"reports\": []}".getBytes();
+        assertThrows(IOException.class, () -> BinaryReportCodec.read(new ByteArrayInputStream(data)));
+    }
+
+    private static byte[] encode(Report... reports) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryReportCodec.write(Arrays.asList(reports), output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Номер версии - два байта сразу после четырёхбайтовой сигнатуры
+     */
+    private static void setVersion(byte[] data, int version) {
+        data[4] = (byte) (version >>> 8);
+        data[5] = (byte) version;
+    }
+
+    private static void assertSameReport(Report expected, Report actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getReporterUUID(), actual.getReporterUUID());
+        assertEquals(expected.getReporterName(), actual.getReporterName());
+        assertEquals(expected.getViolatorName(), actual.getViolatorName());
+        assertEquals(expected.getViolatorUUID(), actual.getViolatorUUID());
+        assertEquals(expected.getReason(), actual.getReason());
+        assertEquals(expected.getComment(), actual.getComment());
+        assertEquals(expected.getCreatedAtMillis(), actual.getCreatedAtMillis());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getAdminComment(), actual.getAdminComment());
+        assertEquals(expected.getReviewedBy(), actual.getReviewedBy());
+        assertEquals(expected.getReviewedById(), actual.getReviewedById());
+        assertEquals(expected.getReviewedAt(), actual.getReviewedAt());
+        assertEquals(expected.getDiscordMessageId(), actual.getDiscordMessageId());
+    }
+}
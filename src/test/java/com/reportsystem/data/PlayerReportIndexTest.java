@@ -0,0 +1,166 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.reportsystem.utils.ReportIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerReportIndexTest {
+
+    private static final int THREADS = 8;
+    private static final int PLAYERS = 16; // общие для всех потоков, чтобы изменения одного игрока пересекались
+    private static final int OPERATIONS = 20_000;
+    private static final Report.ReportStatus[] STATUSES = Report.ReportStatus.values();
+
+    private static final UUID[] players = new UUID[PLAYERS];
+
+    static {
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = UUID.randomUUID();
+        }
+    }
+
+    @Test
+    void updateAndRemove() {
+        PlayerReportIndex index = new PlayerReportIndex();
+        Report first = report(1, players[0], 1_000);
+        Report second = report(2, players[0], 2_000);
+
+        assertNull(index.update(first));
+        assertNull(index.update(second));
+        assertEquals(List.of(2L, 1L), index.findByReporter(players[0]));
+        assertEquals(2, index.count(players[0], Report.ReportStatus.PENDING));
+
+        Report approved = first.withReview(Report.ReportStatus.APPROVED, "admin", "1", new Date());
+        assertEquals(Report.ReportStatus.PENDING, index.update(approved));
+        assertEquals(1, index.count(players[0], Report.ReportStatus.PENDING));
+        assertEquals(1, index.count(players[0], Report.ReportStatus.APPROVED));
+
+        index.remove(approved);
+        index.remove(approved);
+        assertEquals(List.of(2L), index.findByReporter(players[0]));
+        assertEquals(0, index.count(players[0], Report.ReportStatus.APPROVED));
+
+        index.remove(second);
+        assertTrue(index.findByReporter(players[0]).isEmpty());
+    }
+
+    /**
+     * Потоки параллельно добавляют, переводят между статусами и удаляют свои жалобы у общих игроков,
+     * а читатель проверяет согласованность копий. Итог сверяется с однопоточной моделью каждого потока.
+     */
+    @Test
+    void concurrentUpdatesMatchReference() throws Exception {
+        PlayerReportIndex index = new PlayerReportIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<String> readerError = new AtomicReference<>();
+        List<Future<Map<Long, Report>>> writers = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    return mutate(index, thread);
+                }));
+            }
+
+            Future<?> reader = executor.submit(() -> {
+                start.await();
+                Random random = new Random(42);
+                for (int i = 0; i < OPERATIONS && readerError.get() == null; i++) {
+                    UUID player = players[random.nextInt(PLAYERS)];
+                    List<Long> keys = index.findByReporter(player);
+                    if (new HashSet<>(keys).size() != keys.size()) {
+                        readerError.set("дубликаты в копии ключей игрока");
+                    }
+                    for (Report.ReportStatus status : STATUSES) {
+                        if (index.count(player, status) < 0) {
+                            readerError.set("отрицательный счётчик " + status);
+                        }
+                    }
+                }
+                return null;
+            });
+
+            start.countDown();
+            Map<Long, Report> expected = new HashMap<>();
+            for (Future<Map<Long, Report>> writer : writers) {
+                expected.putAll(writer.get(60, TimeUnit.SECONDS));
+            }
+            reader.get(60, TimeUnit.SECONDS);
+            assertNull(readerError.get());
+
+            for (UUID player : players) {
+                List<Long> expectedKeys = new ArrayList<>();
+                int[] expectedCounts = new int[STATUSES.length];
+                expected.values().stream()
+                        .filter(report -> report.getReporterUUID().equals(player))
+                        .sorted(Comparator.comparing(ReportKey::of).reversed())
+                        .forEach(report -> {
+                            expectedKeys.add(report.getKey());
+                            expectedCounts[report.getStatus().ordinal()]++;
+                        });
+
+                assertEquals(expectedKeys, index.findByReporter(player));
+                for (Report.ReportStatus status : STATUSES) {
+                    assertEquals(expectedCounts[status.ordinal()], index.count(player, status), status.name());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Случайные изменения собственных жалоб потока
+     *
+     * @return жалобы потока, оставшиеся в индексе, в последнем состоянии
+     */
+    private static Map<Long, Report> mutate(PlayerReportIndex index, int thread) {
+        Random random = new Random(thread);
+        Map<Long, Report> live = new HashMap<>();
+        List<Long> liveKeys = new ArrayList<>();
+        long nextKey = (long) thread * 1_000_000 + 1;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            UUID player = players[random.nextInt(PLAYERS)];
+            int operation = random.nextInt(10);
+
+            if (operation < 4 || liveKeys.isEmpty()) {
+                Report report = report(nextKey, player, random.nextInt(100_000));
+                nextKey++;
+                index.update(report);
+                live.put(report.getKey(), report);
+                liveKeys.add(report.getKey());
+            } else if (operation < 7) {
+                Long key = liveKeys.get(random.nextInt(liveKeys.size()));
+                Report updated = live.get(key).withReview(STATUSES[random.nextInt(STATUSES.length)],
+                        "admin", "1", new Date());
+                index.update(updated);
+                live.put(key, updated);
+            } else if (operation < 9) {
+                int position = random.nextInt(liveKeys.size());
+                Long key = liveKeys.get(position);
+                liveKeys.set(position, liveKeys.get(liveKeys.size() - 1));
+                liveKeys.remove(liveKeys.size() - 1);
+                index.remove(live.remove(key));
+            } else {
+                index.count(player, Report.ReportStatus.PENDING);
+                index.findByReporter(player);
+            }
+        }
+        return live;
+    }
+
+    private static Report report(long key, UUID reporter, long createdAt) {
+        return new Report(ReportIds.format(key), reporter, "player", "violator", null,
+                "reason", "comment", createdAt);
+    }
+}
@@ -0,0 +1,88 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.reportsystem.utils.ReportIds;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportArchiveTest {
+
+    private static final Logger LOGGER = Logger.getLogger("ReportArchiveTest");
+    private static final long MONTH_START = 1_709_424_000_000L; // 3 марта 2024
+    private static final UUID REPORTER = UUID.randomUUID();
+
+    @TempDir
+    File directory;
+
+    /**
+     * Каждый проход дописывает жалобы в сегмент месяца, а не создаёт новый файл
+     */
+    @Test
+    void mergesPassesIntoMonthlySegment() throws IOException {
+        ReportArchive archive = new ReportArchive(directory, LOGGER);
+        archive.load();
+
+        archive.archive(List.of(resolved(1, 0), resolved(2, 1)));
+        archive.archive(List.of(resolved(3, 2)));
+        archive.archive(List.of(resolved(4, 3)));
+
+        assertEquals(4, archive.getTotalCount());
+        assertEquals(4, archive.countByReporter(REPORTER, Report.ReportStatus.APPROVED));
+        assertEquals(4, archive.findByReporter(REPORTER).size());
+        assertNotNull(archive.find(ReportIds.format(key(1, 0))));
+
+        // Заменённые сегменты удаляются на следующем проходе или при загрузке
+        ReportArchive reloaded = new ReportArchive(directory, LOGGER);
+        reloaded.load();
+        assertEquals(List.of("2024-03-3.dat.gz"), segmentFiles());
+        assertEquals(4, reloaded.getTotalCount());
+        assertEquals(4, reloaded.findByReporter(REPORTER).size());
+    }
+
+    @Test
+    void removedReportsAreNotCountedAfterMerge() throws IOException {
+        ReportArchive archive = new ReportArchive(directory, LOGGER);
+        archive.load();
+
+        archive.archive(List.of(resolved(1, 0), resolved(2, 1)));
+        assertTrue(archive.remove(ReportIds.format(key(1, 0))));
+        archive.archive(List.of(resolved(3, 2)));
+        archive.saveRemovals();
+        archive.archive(List.of(resolved(4, 3)));
+
+        assertEquals(3, archive.getTotalCount());
+        assertNull(archive.find(ReportIds.format(key(1, 0))));
+
+        ReportArchive reloaded = new ReportArchive(directory, LOGGER);
+        reloaded.load();
+        assertEquals(3, reloaded.getTotalCount());
+        assertEquals(3, reloaded.countByReporter(REPORTER, null));
+        assertNull(reloaded.find(ReportIds.format(key(1, 0))));
+    }
+
+    private List<String> segmentFiles() {
+        String[] names = directory.list((dir, name) -> name.endsWith(".dat.gz"));
+        List<String> result = new ArrayList<>(Arrays.asList(names));
+        Collections.sort(result);
+        return result;
+    }
+
+    private static long key(int sequence, int hour) {
+        long createdAt = MONTH_START + hour * 3_600_000L;
+        return ((createdAt - ReportIds.EPOCH) << ReportIds.TIME_SHIFT) | sequence;
+    }
+
+    private static Report resolved(int sequence, int hour) {
+        long key = key(sequence, hour);
+        Report report = new Report(ReportIds.format(key), REPORTER, "player", "violator", null,
+                "reason", null, ReportIds.createdAtOf(key));
+        return report.withReview(Report.ReportStatus.APPROVED, "admin", "1", new Date(ReportIds.createdAtOf(key)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.reportsystem.data;
+
+import com.reportsystem.utils.ReportIds;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportIdAllocatorTest {
+
+    private static final Logger LOGGER = Logger.getLogger("ReportIdAllocatorTest");
+
+    @TempDir
+    File directory;
+
+    @Test
+    void keysAreUniqueAndIncreasing() {
+        ReportIdAllocator allocator = new ReportIdAllocator(new File(directory, "report-ids.dat"), 5, LOGGER, Runnable::run);
+
+        Set<Long> keys = new HashSet<>();
+        long previous = 0;
+        for (int i = 0; i < 20_000; i++) {
+            long key = allocator.next();
+            assertTrue(key > previous);
+            assertTrue(keys.add(key));
+            assertEquals(5, (key >>> 12) & 1023, "номер сервера");
+            previous = key;
+        }
+    }
+
+    /**
+     * Аренда на диске гарантирует, что после перезапуска ключи больше выданных ранее,
+     * даже если перезапуск произошёл в ту же миллисекунду
+     */
+    @Test
+    void keysKeepIncreasingAfterRestart() {
+        File file = new File(directory, "report-ids.dat");
+        ReportIdAllocator first = new ReportIdAllocator(file, 0, LOGGER, Runnable::run);
+        long last = 0;
+        for (int i = 0; i < 100; i++) {
+            last = first.next();
+        }
+
+        ReportIdAllocator restarted = new ReportIdAllocator(file, 0, LOGGER, Runnable::run);
+        long next = restarted.next();
+        assertTrue(next > last);
+        // Новый ключ начинается с конца аренды - не раньше текущего времени
+        assertTrue(ReportIds.createdAtOf(next) >= System.currentTimeMillis() - 1_000);
+    }
+
+    /**
+     * После остановки ключи продолжаются с текущего времени, а не с конца аренды
+     */
+    @Test
+    void closeShrinksLeaseToLastIssuedKey() {
+        File file = new File(directory, "report-ids.dat");
+        ReportIdAllocator first = new ReportIdAllocator(file, 0, LOGGER, Runnable::run);
+        long last = first.next();
+        first.close();
+
+        ReportIdAllocator restarted = new ReportIdAllocator(file, 0, LOGGER, Runnable::run);
+        long next = restarted.next();
+        assertTrue(next > last);
+        assertTrue(ReportIds.createdAtOf(next) <= System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    void fallsBackToNodeZeroForInvalidNodeId() {
+        ReportIdAllocator allocator = new ReportIdAllocator(new File(directory, "report-ids.dat"), 5000, LOGGER,
+                Runnable::run);
+
+        assertEquals(0, (allocator.next() >>> 12) & 1023);
+    }
+}
@@ -0,0 +1,66 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.reportsystem.utils.ReportIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportIndexTest {
+
+    private static final UUID REPORTER = UUID.randomUUID();
+    private static final UUID VIOLATOR = UUID.randomUUID();
+
+    /**
+     * Страницы по нарушителю идут по дате создания и продолжаются с курсора
+     */
+    @Test
+    void violatorScanPagesInCreationOrder() {
+        ReportIndex index = new ReportIndex();
+        // Ключи и даты создания не совпадают по порядку
+        index.update(report(3, VIOLATOR, "Cheater", 1_000));
+        index.update(report(1, VIOLATOR, "Cheater", 3_000));
+        index.update(report(2, UUID.randomUUID(), "Other", 2_000));
+        index.update(report(4, VIOLATOR, "Cheater", 2_500));
+
+        ReportQuery query = ReportQuery.all().violator(VIOLATOR);
+        List<ReportKey> first = index.scan(query, null, true, 2);
+        assertEquals(List.of(1L, 4L), keys(first));
+        assertEquals(List.of(3L), keys(index.scan(query, first.get(1), true, 2)));
+
+        assertEquals(List.of(3L, 4L, 1L), keys(index.scan(ReportQuery.all().violatorName("cheater"), null, false, 10)));
+    }
+
+    @Test
+    void violatorScanFollowsStatusAndRemoval() {
+        ReportIndex index = new ReportIndex();
+        Report first = report(1, VIOLATOR, "Cheater", 1_000);
+        Report second = report(2, VIOLATOR, "Cheater", 2_000);
+        index.update(first);
+        index.update(second);
+
+        index.update(second.withReview(Report.ReportStatus.APPROVED, "admin", "1", new Date()));
+        ReportQuery pending = ReportQuery.all().violator(VIOLATOR).status(Report.ReportStatus.PENDING);
+        assertEquals(List.of(1L), keys(index.scan(pending, null, true, 10)));
+
+        index.remove(first);
+        assertTrue(index.scan(pending, null, true, 10).isEmpty());
+        assertEquals(List.of(2L), keys(index.scan(ReportQuery.all().violator(VIOLATOR), null, true, 10)));
+        assertEquals(List.of(2L), index.newest(List.of(1L, 2L), 10));
+    }
+
+    private static List<Long> keys(List<ReportKey> keys) {
+        List<Long> result = new ArrayList<>();
+        for (ReportKey key : keys) {
+            result.add(key.key);
+        }
+        return result;
+    }
+
+    private static Report report(long key, UUID violator, String violatorName, long createdAt) {
+        return new Report(ReportIds.format(key), REPORTER, "player", violatorName, violator,
+                "reason", "comment", createdAt);
+    }
+}
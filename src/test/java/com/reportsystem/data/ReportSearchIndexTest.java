@@ -0,0 +1,58 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import com.reportsystem.utils.ReportIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportSearchIndexTest {
+
+    @Test
+    void foldsYoToYeAndIgnoresCase() {
+        ReportSearchIndex index = new ReportSearchIndex();
+        Report report = report(1, "Ещё раз сломал ёлку", null);
+        index.update(report);
+
+        assertEquals(List.of(report.getKey()), index.search("ЕЩЕ"));
+        assertEquals(List.of(report.getKey()), index.search("елку"));
+        assertEquals(List.of(report.getKey()), index.search("Ёлку ещё"));
+    }
+
+    @Test
+    void requiresAllWords() {
+        ReportSearchIndex index = new ReportSearchIndex();
+        Report fly = report(1, "fly hack на спавне", null);
+        Report speed = report(2, "speed hack", "на спавне");
+        index.update(fly);
+        index.update(speed);
+
+        assertEquals(2, index.search("hack").size());
+        assertEquals(List.of(fly.getKey()), index.search("fly спавне"));
+        assertTrue(index.search("fly speed").isEmpty());
+        assertTrue(index.search("!").isEmpty());
+    }
+
+    @Test
+    void updateReplacesTokensAndRemoveDropsThem() {
+        ReportSearchIndex index = new ReportSearchIndex();
+        Report report = report(1, "гриф", null);
+        index.update(report);
+
+        Report commented = report.withAdminComment("забанен");
+        index.update(commented);
+        assertEquals(List.of(report.getKey()), index.search("гриф забанен"));
+
+        index.remove(commented);
+        assertTrue(index.search("гриф").isEmpty());
+        assertTrue(index.search("забанен").isEmpty());
+    }
+
+    private static Report report(long key, String reason, String comment) {
+        return new Report(ReportIds.format(key), UUID.randomUUID(), "player", "violator", null,
+                reason, comment, 1_700_000_000_000L);
+    }
+}
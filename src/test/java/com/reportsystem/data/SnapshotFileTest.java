@@ -0,0 +1,107 @@
+package com.reportsystem.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileTest {
+
+    private static final Logger LOGGER = Logger.getLogger("SnapshotFileTest");
+
+    @TempDir
+    File directory;
+
+    @Test
+    void writesContentWithCrcFooter() throws IOException {
+        File file = new File(directory, "reports.dat");
+        SnapshotFile snapshot = new SnapshotFile(file, 3, LOGGER);
+
+        write(snapshot, "first");
+
+        String stored = Files.readString(file.toPath(), StandardCharsets.US_ASCII);
+        assertTrue(stored.startsWith("first\n#crc32:"), stored);
+        assertTrue(stored.endsWith("\n"));
+        assertEquals("first", read(snapshot));
+    }
+
+    @Test
+    void fallsBackToPreviousGenerationOnCorruption() throws IOException {
+        File file = new File(directory, "reports.dat");
+        SnapshotFile snapshot = new SnapshotFile(file, 3, LOGGER);
+
+        write(snapshot, "first");
+        write(snapshot, "second");
+        write(snapshot, "third");
+        assertTrue(new File(directory, "reports.dat.1").exists());
+        assertTrue(new File(directory, "reports.dat.2").exists());
+
+        // Повреждение данных основного файла при целой строке контрольной суммы
+        try (RandomAccessFile corrupted = new RandomAccessFile(file, "rw")) {
+            corrupted.seek(0);
+            corrupted.write('X');
+        }
+        assertEquals("second", read(snapshot));
+    }
+
+    @Test
+    void readsLegacySnapshotsWithoutFooter() throws IOException {
+        File file = new File(directory, "reports.json");
+        Files.writeString(file.toPath(), "{\"reports\": {}}", StandardCharsets.US_ASCII);
+
+        assertEquals("{\"reports\": {}}", read(new SnapshotFile(file, 2, LOGGER)));
+    }
+
+    @Test
+    void emptyOrUnfooteredNewestFallsBackToFooteredGeneration() throws IOException {
+        File file = new File(directory, "reports.json");
+        SnapshotFile snapshot = new SnapshotFile(file, 3, LOGGER);
+        write(snapshot, "first");
+        write(snapshot, "second");
+
+        // Файл обнулён сбоем после переименования
+        Files.write(file.toPath(), new byte[0]);
+        assertEquals("first", read(snapshot));
+
+        // Обрезан до строки контрольной суммы
+        Files.writeString(file.toPath(), "{}", StandardCharsets.US_ASCII);
+        assertEquals("first", read(snapshot));
+    }
+
+    @Test
+    void returnsNullWithoutSnapshots() throws IOException {
+        SnapshotFile snapshot = new SnapshotFile(new File(directory, "missing.dat"), 2, LOGGER);
+
+        assertFalse(snapshot.exists());
+        assertNull(read(snapshot));
+    }
+
+    @Test
+    void archiveRenamesAllGenerations() throws IOException {
+        File file = new File(directory, "reports.dat");
+        SnapshotFile snapshot = new SnapshotFile(file, 2, LOGGER);
+        write(snapshot, "first");
+        write(snapshot, "second");
+
+        snapshot.archive("migrated");
+
+        assertFalse(snapshot.exists());
+        assertTrue(new File(directory, "reports.dat.migrated").exists());
+        assertTrue(new File(directory, "reports.dat.1.migrated").exists());
+    }
+
+    private static void write(SnapshotFile snapshot, String content) throws IOException {
+        snapshot.write(output -> output.write(content.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String read(SnapshotFile snapshot) throws IOException {
+        return snapshot.read(input -> new String(input.readAllBytes(), StandardCharsets.US_ASCII));
+    }
+}
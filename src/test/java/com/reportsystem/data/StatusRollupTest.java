@@ -0,0 +1,67 @@
+package com.reportsystem.data;
+
+import com.reportsystem.models.Report;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusRollupTest {
+
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long START = 1_700_000_000_000L / HOUR * HOUR;
+
+    @Test
+    void sumsRecentBuckets() {
+        StatusRollup rollup = new StatusRollup(HOUR, 48);
+        long now = START + 10 * HOUR;
+
+        rollup.record(Report.ReportStatus.PENDING, now, now);
+        rollup.record(Report.ReportStatus.PENDING, now - HOUR, now);
+        rollup.record(Report.ReportStatus.APPROVED, now - 5 * HOUR, now);
+
+        assertEquals(1, rollup.sum(Report.ReportStatus.PENDING, now, 1));
+        assertEquals(2, rollup.sum(Report.ReportStatus.PENDING, now, 2));
+        assertEquals(0, rollup.sum(Report.ReportStatus.APPROVED, now, 5));
+        assertEquals(1, rollup.sum(Report.ReportStatus.APPROVED, now, 6));
+        assertEquals(0, rollup.sum(Report.ReportStatus.REJECTED, now, 48));
+    }
+
+    /**
+     * После полного оборота кольца слот переиспользуется новым интервалом, а старые счётчики не всплывают
+     */
+    @Test
+    void wrapsAroundWithoutStaleCounts() {
+        StatusRollup rollup = new StatusRollup(HOUR, 4);
+
+        for (int hour = 0; hour < 4; hour++) {
+            rollup.record(Report.ReportStatus.PENDING, START + hour * HOUR, START + hour * HOUR);
+        }
+        assertEquals(4, rollup.sum(Report.ReportStatus.PENDING, START + 3 * HOUR, 4));
+
+        // Интервал START + 4ч занимает слот интервала START
+        long now = START + 4 * HOUR;
+        rollup.record(Report.ReportStatus.PENDING, now, now);
+        rollup.record(Report.ReportStatus.PENDING, now, now);
+        assertEquals(2, rollup.sum(Report.ReportStatus.PENDING, now, 1));
+        assertEquals(5, rollup.sum(Report.ReportStatus.PENDING, now, 4));
+
+        // Запрос больше кольца ограничивается его размером
+        assertEquals(5, rollup.sum(Report.ReportStatus.PENDING, now, 100));
+
+        // Спустя два оборота ничего не осталось
+        assertEquals(0, rollup.sum(Report.ReportStatus.PENDING, now + 8 * HOUR, 4));
+    }
+
+    @Test
+    void ignoresEventsOutsideTheRing() {
+        StatusRollup rollup = new StatusRollup(HOUR, 4);
+        long now = START + 10 * HOUR;
+
+        rollup.record(Report.ReportStatus.PENDING, now - 4 * HOUR, now);
+        rollup.record(Report.ReportStatus.PENDING, now, now);
+        // Опоздавшее событие не должно затереть более новый интервал в том же слоте
+        rollup.record(Report.ReportStatus.PENDING, now - 4 * HOUR, now);
+
+        assertEquals(1, rollup.sum(Report.ReportStatus.PENDING, now, 4));
+    }
+}
@@ -0,0 +1,57 @@
+package com.reportsystem.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportIdsTest {
+
+    @Test
+    void newIdsRoundTrip() {
+        long key = (123_456_789L << ReportIds.TIME_SHIFT) | (3L << 12) | 17;
+        String id = ReportIds.format(key);
+
+        assertTrue(id.startsWith(ReportIds.PREFIX));
+        assertEquals(key, ReportIds.toKey(id));
+        assertEquals(ReportIds.EPOCH + 123_456_789L, ReportIds.createdAtOf(key));
+    }
+
+    @Test
+    void legacyIdsMapToNegativeKeys() {
+        long key = ReportIds.toKey("REP-1700000000-5");
+
+        assertTrue(key < 0);
+        assertEquals(key, ReportIds.toKey("REP-1700000000-5"));
+        assertEquals(1_700_000_000_000L, ReportIds.createdAtOf(key));
+    }
+
+    /**
+     * Счётчик старых ID сбрасывался при перезапуске: одинаковые счётчики в разные секунды
+     * и большие счётчики в одну секунду должны давать разные ключи
+     */
+    @Test
+    void legacyMappingIsInjective() {
+        Set<Long> keys = new HashSet<>();
+        for (long second = 1_700_000_000L; second < 1_700_000_003L; second++) {
+            for (long counter = 0; counter < 10_000; counter += 7) {
+                assertTrue(keys.add(ReportIds.toKey("REP-" + second + "-" + counter)), second + "-" + counter);
+            }
+        }
+
+        // Старшие разряды счётчика переносятся в миллисекунды внутри секунды
+        assertEquals(1_700_000_000_001L, ReportIds.createdAtOf(ReportIds.toKey("REP-1700000000-4096")));
+    }
+
+    @Test
+    void foreignIdsDoNotCollideWithLegacyOrNewKeys() {
+        long key = ReportIds.toKey("custom-report");
+
+        assertTrue(key < 0);
+        assertEquals(key, ReportIds.toKey("custom-report"));
+        assertEquals(ReportIds.UNKNOWN_TIME, ReportIds.createdAtOf(key));
+        assertEquals(ReportIds.UNKNOWN_TIME, ReportIds.createdAtOf(ReportIds.toKey("REP-not-a-number")));
+    }
+}
@@ -0,0 +1,69 @@
+package com.reportsystem.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextArenaTest {
+
+    private static final String TEXT = "Игрок использует читы на полёт и скорость, проверьте запись ";
+
+    @Test
+    void storesLongTextsOffHeap() {
+        TextArena.setEnabled(true);
+        try {
+            assertEquals("коротко", TextArena.store("коротко"));
+            assertNull(TextArena.store(null));
+
+            CharSequence stored = TextArena.store(TEXT);
+            assertNotSame(TEXT, stored);
+            assertEquals(TEXT, TextArena.toString(stored));
+            assertEquals(TEXT.length(), stored.length());
+        } finally {
+            TextArena.setEnabled(false);
+        }
+    }
+
+    /**
+     * Из нескольких заполненных сегментов остаётся по одной живой строке: сегменты должны
+     * уплотниться в один, а строки - читаться после переноса.
+     */
+    @Test
+    void releasesSegmentsOfDeadTexts() {
+        TextArena.setEnabled(true);
+        try {
+            TextArena.reclaim();
+            long before = TextArena.getAllocatedBytes();
+
+            List<CharSequence> all = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                all.add(TextArena.store(TEXT + i));
+            }
+            long filled = TextArena.getAllocatedBytes() - before;
+            assertTrue(filled > 4 * 256 * 1024, "занято " + filled + " байт");
+
+            List<CharSequence> survivors = new ArrayList<>();
+            for (int i = 0; i < all.size(); i++) {
+                if (i % 2_000 == 0) {
+                    survivors.add(all.get(i));
+                } else {
+                    TextArena.expire(all.get(i));
+                }
+            }
+
+            TextArena.reclaim();
+            // Остаются текущий сегмент и, возможно, сегмент с перенесёнными строками
+            assertTrue(TextArena.getAllocatedBytes() - before <= 2 * 256 * 1024,
+                    "занято " + (TextArena.getAllocatedBytes() - before) + " из " + filled + " байт");
+
+            for (int i = 0; i < survivors.size(); i++) {
+                assertEquals(TEXT + i * 2_000, survivors.get(i).toString());
+            }
+        } finally {
+            TextArena.setEnabled(false);
+        }
+    }
+}